@@ -0,0 +1,6 @@
+-- Composite indexes backing keyset pagination of the beer listing.
+-- The id suffix makes the sort key unique, so the seek predicate
+-- (sort_value, beer_id) > (?, ?) resolves to a single index range scan.
+
+CREATE INDEX IF NOT EXISTS ix_beers_name_id ON beers (name, beer_id);
+CREATE INDEX IF NOT EXISTS ix_beers_abv_id ON beers (abv, beer_id);
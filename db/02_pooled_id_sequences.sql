@@ -0,0 +1,25 @@
+-- Sequences for pooled-lo id generation of beers and users (allocationSize = 50 in the mappings).
+-- Each NEXT VALUE hands a block of 50 ids to the application, which assigns them in memory, so
+-- inserts need no generated-key round trip and can be sent as JDBC batches.
+--
+-- Compatibility with existing rows and other writers: each sequence starts after the highest
+-- existing id, and the id columns lose AUTO_INCREMENT but get a DEFAULT drawing from the same
+-- sequence, so inserts that omit the id (scripts, older application versions) keep working and
+-- never collide with ids handed out in blocks.
+
+SET @beers_start = (SELECT COALESCE(MAX(beer_id), 0) + 1 FROM beers);
+SET @ddl = CONCAT('CREATE SEQUENCE IF NOT EXISTS beers_seq START WITH ', @beers_start, ' INCREMENT BY 50');
+PREPARE create_sequence FROM @ddl;
+EXECUTE create_sequence;
+DEALLOCATE PREPARE create_sequence;
+
+SET @users_start = (SELECT COALESCE(MAX(user_id), 0) + 1 FROM users);
+SET @ddl = CONCAT('CREATE SEQUENCE IF NOT EXISTS users_seq START WITH ', @users_start, ' INCREMENT BY 50');
+PREPARE create_sequence FROM @ddl;
+EXECUTE create_sequence;
+DEALLOCATE PREPARE create_sequence;
+
+SET FOREIGN_KEY_CHECKS = 0;
+ALTER TABLE beers MODIFY beer_id INT NOT NULL DEFAULT NEXT VALUE FOR beers_seq;
+ALTER TABLE users MODIFY user_id INT NOT NULL DEFAULT NEXT VALUE FOR users_seq;
+SET FOREIGN_KEY_CHECKS = 1;
@@ -0,0 +1,12 @@
+-- Keys for the single-statement wishlist add/remove in UserRepositoryImpl.
+-- The unique key makes "insert ignore" a no-op for a beer that is already on the wishlist (ALTER
+-- IGNORE drops existing duplicate rows), and the foreign keys reject rows for missing users or
+-- beers, so no lookup is needed before writing. Deleting a user or a beer removes its wishlist rows.
+
+ALTER IGNORE TABLE wishlists ADD UNIQUE KEY IF NOT EXISTS uq_wishlists_user_beer (user_id, beer_id);
+
+ALTER TABLE wishlists
+    ADD CONSTRAINT fk_wishlists_user FOREIGN KEY IF NOT EXISTS (user_id)
+        REFERENCES users (user_id) ON DELETE CASCADE,
+    ADD CONSTRAINT fk_wishlists_beer FOREIGN KEY IF NOT EXISTS (beer_id)
+        REFERENCES beers (beer_id) ON DELETE CASCADE;
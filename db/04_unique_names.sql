@@ -0,0 +1,12 @@
+-- Unique keys backing the duplicate checks of BeerRepositoryImpl and UserRepositoryImpl.
+-- Creates and updates write directly and translate a violation of these keys into
+-- EntityDuplicateException, so there is no lookup before the write and no window between the
+-- check and the insert for a concurrent request. The column collation is case-insensitive, so
+-- names differing only in case count as duplicates, as they did in the old lookups.
+-- Existing duplicates make the ALTER fail and have to be cleaned up first.
+
+ALTER TABLE beers ADD UNIQUE KEY IF NOT EXISTS uq_beers_name (name);
+
+ALTER TABLE users
+    ADD UNIQUE KEY IF NOT EXISTS uq_users_username (username),
+    ADD UNIQUE KEY IF NOT EXISTS uq_users_email (email);
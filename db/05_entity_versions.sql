@@ -0,0 +1,8 @@
+-- Version columns for the @Version mappings of Beer, User and Style. Hibernate increments them on
+-- every update made through a session; the conditional beer update in BeerRepositoryImpl
+-- increments beers.version itself. The beer version is part of the beer ETag and is compared by
+-- PUT /api/beers/{id} when the request carries If-Match.
+
+ALTER TABLE beers ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE styles ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
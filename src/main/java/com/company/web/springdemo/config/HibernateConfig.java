@@ -1,8 +1,13 @@
 package com.company.web.springdemo.config;
 
+import com.company.web.springdemo.helpers.DatabaseBulkhead;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.core.env.Environment;
 import org.springframework.orm.hibernate5.LocalSessionFactoryBean;
 
 import javax.sql.DataSource;
@@ -11,30 +16,98 @@ import java.util.Properties;
 @Configuration
 public class HibernateConfig {
 
+    private final Environment env;
+
+    @Autowired
+    public HibernateConfig(Environment env) {
+        this.env = env;
+    }
+
+    /**
+     * Sessions borrow their connections through the database bulkhead, so concurrent database
+     * work stays within database.bulkhead.max-concurrent however many request threads there are.
+     */
     @Bean (name="entityManagerFactory")
-    public LocalSessionFactoryBean sessionFactory(){
+    public LocalSessionFactoryBean sessionFactory(DataSource dataSource, DatabaseBulkhead bulkhead){
         LocalSessionFactoryBean sessionFactory = new LocalSessionFactoryBean();
-        sessionFactory.setDataSource(dataSource());
+        sessionFactory.setDataSource(bulkhead.wrap(dataSource));
         sessionFactory.setPackagesToScan("com.company.web.springdemo.models");
         sessionFactory.setHibernateProperties(hibernateProperties());
         return sessionFactory;
     }
 
-    @Bean
-    public DataSource dataSource(){
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("org.mariadb.jdbc.Driver");
-        dataSource.setUrl("jdbc:mariadb://localhost:3306/beers");
-        dataSource.setUsername("root");
-        dataSource.setPassword("root");
-
-        return dataSource;
+    /**
+     * Pooled data source, so sessions borrow an already open connection instead of
+     * opening a new TCP connection to MariaDB every time. Pool metrics
+     * (hikaricp.connections.active/idle/pending/acquire/timeout) are published to the
+     * meter registry and can be read from /actuator/metrics.
+     */
+    @Bean(destroyMethod = "close")
+    public HikariDataSource dataSource(MeterRegistry meterRegistry){
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("beers-pool");
+        config.setDriverClassName("org.mariadb.jdbc.Driver");
+        config.setJdbcUrl(env.getProperty("database.url"));
+        config.setUsername(env.getProperty("database.username"));
+        config.setPassword(env.getProperty("database.password"));
+
+        config.setMinimumIdle(env.getProperty("database.pool.min-idle", Integer.class, 5));
+        config.setMaximumPoolSize(env.getProperty("database.pool.max-size", Integer.class, 20));
+        config.setConnectionTimeout(env.getProperty("database.pool.connection-timeout-ms", Long.class, 3000L));
+        config.setIdleTimeout(env.getProperty("database.pool.idle-timeout-ms", Long.class, 600000L));
+        config.setMaxLifetime(env.getProperty("database.pool.max-lifetime-ms", Long.class, 1800000L));
+
+        // Connections are validated with Connection.isValid() on borrow and while idle.
+        config.setValidationTimeout(env.getProperty("database.pool.validation-timeout-ms", Long.class, 1000L));
+        config.setKeepaliveTime(env.getProperty("database.pool.keepalive-time-ms", Long.class, 300000L));
+        config.setLeakDetectionThreshold(env.getProperty("database.pool.leak-detection-threshold-ms", Long.class, 10000L));
+
+        // Server side prepared statements, cached per connection by the MariaDB driver.
+        config.addDataSourceProperty("useServerPrepStmts",
+                env.getProperty("database.pool.use-server-prep-stmts", "true"));
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize",
+                env.getProperty("database.pool.prep-stmt-cache-size", "250"));
+        // Sends a JDBC batch of inserts as a single bulk command instead of one per row.
+        config.addDataSourceProperty("useBulkStmts", "true");
+
+        config.setMetricRegistry(meterRegistry);
+        config.setRegisterMbeans(true);
+
+        return new HikariDataSource(config);
     }
 
     @Bean
     public Properties hibernateProperties(){
         Properties hibernateProperties = new Properties();
         hibernateProperties.setProperty("hibernate.dialect", "org.hibernate.dialect.MariaDBDialect");
+
+        // Second-level cache, backed by Caffeine through JCache (regions are configured in application.conf)
+        hibernateProperties.setProperty("hibernate.cache.use_second_level_cache", "true");
+        hibernateProperties.setProperty("hibernate.cache.region.factory_class", "jcache");
+        hibernateProperties.setProperty("hibernate.javax.cache.provider",
+                "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider");
+        hibernateProperties.setProperty("hibernate.javax.cache.missing_cache_strategy", "create");
+
+        // Associations are lazy and fetched per use case through entity graphs; any lazy load
+        // that still happens is batched instead of issuing one select per row.
+        hibernateProperties.setProperty("hibernate.default_batch_fetch_size", "50");
+
+        // Pads in-lists (beer ids refreshed by the catalog) to powers of two, to keep the number of SQL shapes small.
+        hibernateProperties.setProperty("hibernate.query.in_clause_parameter_padding", "true");
+
+        // Ids come from sequences in blocks of 50 (pooled-lo, see db/02_pooled_id_sequences.sql),
+        // so inserts and updates are sent as JDBC batches of the same size.
+        hibernateProperties.setProperty("hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+        hibernateProperties.setProperty("hibernate.jdbc.batch_size", "50");
+        hibernateProperties.setProperty("hibernate.order_inserts", "true");
+        hibernateProperties.setProperty("hibernate.order_updates", "true");
+
+        // Statistics are collected for every session and statement, so they are off unless asked for
+        // (the query plan cache meters in MetricsConfig only count while they are on).
+        hibernateProperties.setProperty("hibernate.generate_statistics",
+                env.getProperty("database.hibernate.generate-statistics", "false"));
+        hibernateProperties.setProperty("hibernate.session.events.log", "false");
         return hibernateProperties;
     }
 }
@@ -0,0 +1,57 @@
+package com.company.web.springdemo.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Publishes the HQL interpretation (query plan) cache hit and miss counts as
+     * hibernate.query.plan.cache{result=hit|miss}. Hibernate only counts them while statistics are
+     * enabled (database.hibernate.generate-statistics=true).
+     */
+    @Bean
+    public MeterBinder queryPlanCacheMetrics(SessionFactory sessionFactory) {
+        return registry -> {
+            Statistics statistics = sessionFactory.getStatistics();
+            FunctionCounter.builder("hibernate.query.plan.cache", statistics, Statistics::getQueryPlanCacheHitCount)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("hibernate.query.plan.cache", statistics, Statistics::getQueryPlanCacheMissCount)
+                    .tag("result", "miss")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Publishes hit/miss/put/eviction counters for every second-level cache region
+     * as cache.* meters tagged with cache=&lt;region name&gt;.
+     */
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(SessionFactory sessionFactory) {
+        return registry -> {
+            JCacheRegionFactory regionFactory = (JCacheRegionFactory) sessionFactory
+                    .unwrap(SessionFactoryImplementor.class)
+                    .getCache()
+                    .getRegionFactory();
+            CacheManager cacheManager = regionFactory.getCacheManager();
+
+            for (String region : cacheManager.getCacheNames()) {
+                Cache<Object, Object> cache = cacheManager.getCache(region);
+                CaffeineCacheMetrics.monitor(registry,
+                        cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class), region);
+            }
+        };
+    }
+}
@@ -1,8 +1,16 @@
 package com.company.web.springdemo.controllers.mvc;
 
 import com.company.web.springdemo.exceptions.EntityNotFoundException;
+import com.company.web.springdemo.helpers.BeerTableFragments;
+import com.company.web.springdemo.helpers.FlushingIterator;
 import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerSummary;
+import com.company.web.springdemo.models.CursorPage;
+import com.company.web.springdemo.models.FilterOptions;
+import com.company.web.springdemo.models.Style;
 import com.company.web.springdemo.services.BeerService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
@@ -11,19 +19,30 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @Controller
 @RequestMapping("/beers")
 public class BeerMvcController {
 
+    private static final int STREAM_ROWS_PER_FLUSH = 100;
+
     private final BeerService beerService;
+    private final BeerTableFragments beerTableFragments;
 
     @Autowired
-    public BeerMvcController(BeerService beerService) {
+    public BeerMvcController(BeerService beerService, BeerTableFragments beerTableFragments) {
         this.beerService = beerService;
+        this.beerTableFragments = beerTableFragments;
     }
 
     @GetMapping("/{id}")
@@ -34,6 +53,7 @@ public class BeerMvcController {
             beers.add(beer);
             model.addAttribute("creatorEmail", beer.getCreatedBy().getEmail());
             model.addAttribute("beers", beers);
+            model.addAttribute("hasBeers", true);
         }catch (EntityNotFoundException e){
             model.addAttribute("statusCode",
                     HttpStatus.NOT_FOUND.getReasonPhrase());
@@ -45,17 +65,89 @@ public class BeerMvcController {
 
     @GetMapping
     public String showBeers(Model model,
+                            HttpServletRequest request,
+                            HttpServletResponse response,
                             @RequestParam(required = false) String beerName,
                             @RequestParam(required = false) String styleName,
                             @RequestParam(required = false) Double minAbv,
                             @RequestParam(required = false) Double maxAbv,
                             @RequestParam(defaultValue = "name") String sortBy,
-                            @RequestParam(defaultValue = "asc") String sortOrder){
-        List<Beer> beers = beerService.get(beerName, minAbv, maxAbv, styleName, sortBy, sortOrder);
+                            @RequestParam(defaultValue = "asc") String sortOrder,
+                            @RequestParam(required = false) String cursor,
+                            @RequestParam(defaultValue = "50") int limit){
+        FilterOptions filterOptions = new FilterOptions(beerName, minAbv, maxAbv, styleName, sortBy, sortOrder);
+        String normalizedOrder = filterOptions.isDescending() ? "desc" : "asc";
+        // The table only depends on these values, so they are both the cache key and the template variables.
+        List<Object> parameters = Arrays.<Object>asList(filterOptions.getName(), filterOptions.getStyleName(),
+                filterOptions.getMinAbv(), filterOptions.getMaxAbv(), filterOptions.getSortBy(), normalizedOrder,
+                cursor, limit);
+        String beerTable;
+        try {
+            // The stamp comes from the database, so writes of other instances invalidate the cache too.
+            beerTable = beerTableFragments.render(parameters, beerService.getStamp(), request, response, () -> {
+                CursorPage<Beer> page = beerService.get(filterOptions, cursor, limit);
+                Map<String, Object> variables = new HashMap<>();
+                variables.put("beers", page.getItems());
+                variables.put("hasBeers", !page.getItems().isEmpty());
+                variables.put("nextCursor", page.getNextCursor());
+                variables.put("beerName", filterOptions.getName());
+                variables.put("styleName", filterOptions.getStyleName());
+                variables.put("minAbv", filterOptions.getMinAbv());
+                variables.put("maxAbv", filterOptions.getMaxAbv());
+                variables.put("sortBy", filterOptions.getSortBy());
+                variables.put("sortOrder", normalizedOrder);
+                variables.put("limit", limit);
+                return variables;
+            });
+        } catch (IllegalArgumentException e) {
+            model.addAttribute("statusCode",
+                    HttpStatus.BAD_REQUEST.getReasonPhrase());
+            return "ErrorView";
+        }
 
-        model.addAttribute("beers", beers);
+        model.addAttribute("beerTable", beerTable);
 
         return "BeersView";
     }
 
+    /**
+     * Every matching beer on one page, rendered while the rows are read from a database cursor:
+     * the table iterates the stream and the response is flushed every
+     * {@value #STREAM_ROWS_PER_FLUSH} rows, so neither the result list nor the page is held in
+     * memory.
+     */
+    @GetMapping(params = "view=all")
+    public String showAllBeers(Model model,
+                               HttpServletResponse response,
+                               @RequestParam(required = false) String beerName,
+                               @RequestParam(required = false) String styleName,
+                               @RequestParam(required = false) Double minAbv,
+                               @RequestParam(required = false) Double maxAbv,
+                               @RequestParam(defaultValue = "name") String sortBy,
+                               @RequestParam(defaultValue = "asc") String sortOrder){
+        FilterOptions filterOptions = new FilterOptions(beerName, minAbv, maxAbv, styleName, sortBy, sortOrder);
+        Stream<BeerSummary> stream = beerService.stream(filterOptions);
+        // The view is rendered after this method returns, so the cursor is closed when the request completes.
+        RequestContextHolder.currentRequestAttributes()
+                .registerDestructionCallback("beerStream", stream::close, RequestAttributes.SCOPE_REQUEST);
+
+        Iterator<Beer> beers = stream.map(BeerMvcController::toBeer).iterator();
+        model.addAttribute("hasBeers", beers.hasNext());
+        model.addAttribute("beers", new FlushingIterator<>(beers, response, STREAM_ROWS_PER_FLUSH));
+        model.addAttribute("beerName", filterOptions.getName());
+        model.addAttribute("styleName", filterOptions.getStyleName());
+        model.addAttribute("minAbv", filterOptions.getMinAbv());
+        model.addAttribute("maxAbv", filterOptions.getMaxAbv());
+        model.addAttribute("sortBy", filterOptions.getSortBy());
+        model.addAttribute("sortOrder", filterOptions.isDescending() ? "desc" : "asc");
+        model.addAttribute("view", "all");
+
+        return "BeersView";
+    }
+
+    private static Beer toBeer(BeerSummary summary) {
+        Beer beer = new Beer(summary.getId(), summary.getName(), summary.getAbv());
+        beer.setStyle(new Style(summary.getStyleId(), summary.getStyleName()));
+        return beer;
+    }
 }
@@ -0,0 +1,42 @@
+package com.company.web.springdemo.controllers.rest;
+
+import com.company.web.springdemo.exceptions.AuthorizationException;
+import com.company.web.springdemo.helpers.AccessTokenHelper;
+import com.company.web.springdemo.helpers.AuthenticationHelper;
+import com.company.web.springdemo.models.LoginDto;
+import com.company.web.springdemo.models.TokenDto;
+import com.company.web.springdemo.models.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import jakarta.validation.Valid;
+
+@RestController
+@RequestMapping("/api/auth")
+public class AuthController {
+
+    private final AuthenticationHelper authenticationHelper;
+    private final AccessTokenHelper accessTokenHelper;
+
+    @Autowired
+    public AuthController(AuthenticationHelper authenticationHelper, AccessTokenHelper accessTokenHelper) {
+        this.authenticationHelper = authenticationHelper;
+        this.accessTokenHelper = accessTokenHelper;
+    }
+
+    @PostMapping("/login")
+    public TokenDto login(@Valid @RequestBody LoginDto loginDto) {
+        try {
+            User user = authenticationHelper.authenticate(loginDto.getUsername(), loginDto.getPassword());
+            String token = accessTokenHelper.issue(user);
+            return new TokenDto(token, accessTokenHelper.getExpiry(token));
+        } catch (AuthorizationException e) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+        }
+    }
+}
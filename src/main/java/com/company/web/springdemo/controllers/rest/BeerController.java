@@ -2,50 +2,202 @@ package com.company.web.springdemo.controllers.rest;
 
 import com.company.web.springdemo.exceptions.AuthorizationException;
 import com.company.web.springdemo.exceptions.EntityDuplicateException;
+import com.company.web.springdemo.exceptions.EntityModifiedException;
 import com.company.web.springdemo.exceptions.EntityNotFoundException;
 import com.company.web.springdemo.helpers.AuthenticationHelper;
 import com.company.web.springdemo.helpers.BeerMapper;
+import com.company.web.springdemo.helpers.BeerStreamWriter;
+import com.company.web.springdemo.helpers.ETagHelper;
+import com.company.web.springdemo.models.BatchItemResult;
 import com.company.web.springdemo.models.Beer;
 import com.company.web.springdemo.models.BeerDto;
+import com.company.web.springdemo.models.BeerSummary;
+import com.company.web.springdemo.models.ChangeStamp;
+import com.company.web.springdemo.models.CursorPage;
+import com.company.web.springdemo.models.FilterOptions;
+import com.company.web.springdemo.models.PopularBeer;
+import com.company.web.springdemo.models.ImportReport;
 import com.company.web.springdemo.models.User;
+import com.company.web.springdemo.services.BeerImportService;
 import com.company.web.springdemo.services.BeerService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/beers")
 public class BeerController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final String CSV_MEDIA_TYPE = "text/csv";
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    private static final int EXPORT_GZIP_BUFFER_BYTES = 8192;
+
     private final BeerService service;
+    private final BeerImportService importService;
     private final BeerMapper beerMapper;
     private final AuthenticationHelper authenticationHelper;
+    private final BeerStreamWriter beerStreamWriter;
+    private final ETagHelper eTagHelper;
 
     @Autowired
-    public BeerController(BeerService service, BeerMapper beerMapper, AuthenticationHelper authenticationHelper) {
+    public BeerController(BeerService service,
+                          BeerImportService importService,
+                          BeerMapper beerMapper,
+                          AuthenticationHelper authenticationHelper,
+                          BeerStreamWriter beerStreamWriter,
+                          ETagHelper eTagHelper) {
         this.service = service;
+        this.importService = importService;
         this.beerMapper = beerMapper;
         this.authenticationHelper = authenticationHelper;
+        this.beerStreamWriter = beerStreamWriter;
+        this.eTagHelper = eTagHelper;
     }
 
+    /**
+     * Conditional requests (If-None-Match, If-Modified-Since) on the beer reads are answered from
+     * change stamps read from the database before anything is loaded: the version columns of a
+     * single beer, or an aggregate over all of them for the collection.
+     */
     @GetMapping
-    public List<Beer> get(
+    public ResponseEntity<List<Beer>> get(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) Double minAbv,
+            @RequestParam(required = false) Double maxAbv,
+            @RequestParam(required = false) String styleName,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String sortOrder,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest request) {
+        if (isNotModified(service.getStamp(), request)) {
+            return null;
+        }
+        if (limit == null && cursor == null) {
+            return ResponseEntity.ok(service.get(name, minAbv, maxAbv, styleName, sortBy, sortOrder));
+        }
+
+        try {
+            FilterOptions filterOptions = new FilterOptions(name, minAbv, maxAbv, styleName, sortBy, sortOrder);
+            CursorPage<Beer> page = service.get(filterOptions, cursor, limit == null ? DEFAULT_PAGE_SIZE : limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.hasNext()) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Same filter and sort as {@link #get}, answered from the in-memory catalog snapshot instead
+     * of the database. The snapshot, and its change stamp, may lag behind writes made by other
+     * instances for up to {@code catalog.sync-interval-ms}; callers that need read-your-writes
+     * across instances use the default strong consistency.
+     */
+    @GetMapping(params = "consistency=snapshot", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody getSnapshot(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) Double minAbv,
+            @RequestParam(required = false) Double maxAbv,
+            @RequestParam(required = false) String styleName,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String sortOrder,
+            WebRequest request) {
+        if (isNotModified(service.getSnapshotStamp(), request)) {
+            return null;
+        }
+        FilterOptions filterOptions = new FilterOptions(name, minAbv, maxAbv, styleName, sortBy, sortOrder);
+        List<BeerSummary> beers = service.getSnapshot(filterOptions);
+        return out -> beerStreamWriter.writeJsonArray(beers.stream(), out);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody stream(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) Double minAbv,
             @RequestParam(required = false) Double maxAbv,
             @RequestParam(required = false) String styleName,
             @RequestParam(required = false) String sortBy,
             @RequestParam(required = false) String sortOrder) {
-        return service.get(name, minAbv, maxAbv, styleName, sortBy, sortOrder);
+        FilterOptions filterOptions = new FilterOptions(name, minAbv, maxAbv, styleName, sortBy, sortOrder);
+        return out -> {
+            try (Stream<BeerSummary> beers = service.stream(filterOptions)) {
+                beerStreamWriter.writeJsonArray(beers, out);
+            }
+        };
+    }
+
+    /**
+     * Exports the whole (optionally filtered) catalog as NDJSON or CSV, straight from a
+     * forward-only database cursor, so heap use does not depend on the catalog size. With
+     * {@code gzip=true} the body is gzip-compressed and sent with {@code Content-Encoding: gzip};
+     * compressed output is still flushed as the rows are written.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) Double minAbv,
+            @RequestParam(required = false) Double maxAbv,
+            @RequestParam(required = false) String styleName,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        boolean csv = format.equalsIgnoreCase("csv");
+        if (!csv && !format.equalsIgnoreCase("ndjson")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Format must be csv or ndjson.");
+        }
+
+        FilterOptions filterOptions = new FilterOptions(name, minAbv, maxAbv, styleName, FilterOptions.SORT_BY_ID, "asc");
+        StreamingResponseBody body = out -> {
+            // Sync flush: every flush of the writer pushes a complete deflate block to the client.
+            try (OutputStream target = gzip ? new GZIPOutputStream(out, EXPORT_GZIP_BUFFER_BYTES, true) : out;
+                 Stream<BeerSummary> beers = service.stream(filterOptions)) {
+                if (csv) {
+                    beerStreamWriter.writeCsv(beers, target);
+                } else {
+                    beerStreamWriter.writeNdjson(beers, target);
+                }
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.parseMediaType(NDJSON_MEDIA_TYPE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"beers." + (csv ? "csv" : "ndjson") + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    @GetMapping("/popular")
+    public List<PopularBeer> getPopular(@RequestParam(defaultValue = "10") int limit) {
+        return service.getPopular(limit);
     }
 
     @GetMapping("/{id}")
-    public Beer get(@PathVariable int id) {
+    public Beer get(@PathVariable int id, WebRequest request) {
+        if (isNotModified(service.getStamp(id), request)) {
+            return null;
+        }
         try {
             return service.get(id);
         } catch (EntityNotFoundException e) {
@@ -69,17 +221,64 @@ public class BeerController {
         }
     }
 
+    @PostMapping("/batch")
+    public List<BatchItemResult> createBatch(@RequestHeader HttpHeaders headers, @RequestBody List<BeerDto> beerDtos) {
+        try {
+            User user = authenticationHelper.tryGetUser(headers);
+            return service.create(beerDtos, user);
+        } catch (AuthorizationException e) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Imports a partner catalog sent as the raw request body, either CSV with a
+     * {@code name,abv,style} header or NDJSON. The body is read as it arrives.
+     */
+    @PostMapping(value = "/import", consumes = {CSV_MEDIA_TYPE, NDJSON_MEDIA_TYPE})
+    public ImportReport importBeers(@RequestHeader HttpHeaders headers, InputStream body) {
+        try {
+            User user = authenticationHelper.tryGetUser(headers);
+            BeerImportService.Format format = MediaType.parseMediaType(NDJSON_MEDIA_TYPE).includes(headers.getContentType())
+                    ? BeerImportService.Format.NDJSON
+                    : BeerImportService.Format.CSV;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            return importService.importBeers(reader, format, user);
+        } catch (AuthorizationException e) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * With an If-Match header the update only goes through while the beer still has one of the
+     * given ETags; otherwise the response is 412 and nothing is written.
+     */
     @PutMapping("/{id}")
-    public Beer update(@RequestHeader HttpHeaders headers, @PathVariable int id, @Valid @RequestBody BeerDto beerDto) {
+    public ResponseEntity<Beer> update(@RequestHeader HttpHeaders headers,
+                                       @PathVariable int id,
+                                       @Valid @RequestBody BeerDto beerDto) {
         try {
             User user = authenticationHelper.tryGetUser(headers);
             Beer beer = beerMapper.fromDto(id, beerDto);
-            service.update(beer, user);
-            return beer;
+            service.update(beer, user, eTagHelper.parseIfMatch(headers.getFirst(HttpHeaders.IF_MATCH)));
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            ChangeStamp stamp = service.getStamp(id);
+            if (stamp != null) {
+                response.eTag(eTagHelper.toETag(stamp));
+            }
+            return response.body(beer);
         } catch (EntityNotFoundException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
         } catch (EntityDuplicateException e) {
             throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (EntityModifiedException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage());
+        } catch (AuthorizationException e) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
         }
     }
 
@@ -90,7 +289,12 @@ public class BeerController {
             service.delete(id, user);
         } catch (EntityNotFoundException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (AuthorizationException e) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
         }
     }
 
+    private boolean isNotModified(ChangeStamp stamp, WebRequest request) {
+        return stamp != null && request.checkNotModified(eTagHelper.toETag(stamp), stamp.getLastModified());
+    }
 }
@@ -4,15 +4,21 @@ import com.company.web.springdemo.exceptions.AuthorizationException;
 import com.company.web.springdemo.exceptions.EntityDuplicateException;
 import com.company.web.springdemo.exceptions.EntityNotFoundException;
 import com.company.web.springdemo.helpers.AuthenticationHelper;
+import com.company.web.springdemo.helpers.ETagHelper;
 import com.company.web.springdemo.helpers.UserMapper;
 import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.ChangeStamp;
+import com.company.web.springdemo.models.CursorPage;
 import com.company.web.springdemo.models.User;
 import com.company.web.springdemo.models.UserDto;
+import com.company.web.springdemo.models.WishListUpdateDto;
 import com.company.web.springdemo.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.validation.Valid;
@@ -23,17 +29,22 @@ import java.util.Set;
 @RequestMapping("/api/users")
 public class UserController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final UserService userService;
     private final AuthenticationHelper authenticationHelper;
     private final UserMapper userMapper;
+    private final ETagHelper eTagHelper;
 
     @Autowired
     public UserController(UserService userService,
                           AuthenticationHelper authenticationHelper,
-                          UserMapper userMapper) {
+                          UserMapper userMapper,
+                          ETagHelper eTagHelper) {
         this.userService = userService;
         this.authenticationHelper = authenticationHelper;
         this.userMapper = userMapper;
+        this.eTagHelper = eTagHelper;
     }
 
     @GetMapping
@@ -50,15 +61,98 @@ public class UserController {
         }
     }
     @GetMapping("/{id}/wishlist")
-    public Set<Beer> getWishList(@RequestHeader HttpHeaders headers,
-                                 @PathVariable int id){
+    public ResponseEntity<List<Beer>> getWishList(@RequestHeader HttpHeaders headers,
+                                                  @PathVariable int id,
+                                                  @RequestParam(required = false) String cursor,
+                                                  @RequestParam(defaultValue = "50") int limit,
+                                                  WebRequest request){
+        try {
+            User requester = authenticationHelper.tryGetUser(headers);
+            if (isWishListNotModified(requester, id, request)) {
+                return null;
+            }
+            CursorPage<Beer> page = userService.getWishList(requester, id, cursor, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.hasNext()) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        }
+        catch (AuthorizationException e){
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+        }
+        catch (EntityNotFoundException e){
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+        catch (IllegalArgumentException e){
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * The whole wishlist as a plain array of beer ids, without loading any beer.
+     */
+    @GetMapping(value = "/{id}/wishlist", params = "idsOnly=true")
+    public int[] getWishListIds(@RequestHeader HttpHeaders headers,
+                                @PathVariable int id,
+                                WebRequest request){
+        try {
+            User requester = authenticationHelper.tryGetUser(headers);
+            if (isWishListNotModified(requester, id, request)) {
+                return null;
+            }
+            return userService.getWishListIds(requester, id);
+        }
+        catch (AuthorizationException e){
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+        }
+        catch (EntityNotFoundException e){
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the whole wishlist with the given beer ids and returns the resulting ids.
+     */
+    @PutMapping("/{id}/wishlist")
+    public int[] replaceWishList(@RequestHeader HttpHeaders headers,
+                                 @PathVariable int id,
+                                 @RequestBody Set<Integer> beerIds){
         try {
             User requester = authenticationHelper.tryGetUser(headers);
-            return userService.getWishList(requester, id);
+            return userService.replaceWishList(requester, id, beerIds);
         }
         catch (AuthorizationException e){
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
         }
+        catch (EntityNotFoundException e){
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+        catch (IllegalArgumentException e){
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Adds and removes sets of beer ids in one call and returns the resulting ids.
+     */
+    @PatchMapping("/{id}/wishlist")
+    public int[] updateWishList(@RequestHeader HttpHeaders headers,
+                                @PathVariable int id,
+                                @RequestBody WishListUpdateDto update){
+        try {
+            User requester = authenticationHelper.tryGetUser(headers);
+            return userService.updateWishList(requester, id, update.getAdd(), update.getRemove());
+        }
+        catch (AuthorizationException e){
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+        }
+        catch (EntityNotFoundException e){
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+        catch (IllegalArgumentException e){
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     @PostMapping("/{userId}/wishlist/{beerId}")
@@ -132,4 +226,13 @@ public class UserController {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
         }
     }
+
+    /**
+     * Answers If-None-Match and If-Modified-Since from the wishlist change stamp, before anything
+     * is loaded, and sets the ETag and Last-Modified headers.
+     */
+    private boolean isWishListNotModified(User requester, int userId, WebRequest request) {
+        ChangeStamp stamp = userService.getWishListStamp(requester, userId);
+        return stamp != null && request.checkNotModified(eTagHelper.toETag(stamp), stamp.getLastModified());
+    }
 }
@@ -0,0 +1,13 @@
+package com.company.web.springdemo.exceptions;
+
+public class EntityModifiedException extends RuntimeException {
+
+    public EntityModifiedException(String type, int id) {
+        this(type, "id", String.valueOf(id));
+    }
+
+    public EntityModifiedException(String type, String attribute, String value) {
+        super(String.format("%s with %s %s has been modified since it was read.", type, attribute, value));
+    }
+
+}
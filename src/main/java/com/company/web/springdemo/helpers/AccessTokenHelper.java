@@ -0,0 +1,156 @@
+package com.company.web.springdemo.helpers;
+
+import com.company.web.springdemo.exceptions.AuthorizationException;
+import com.company.web.springdemo.models.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Issues and verifies short-lived HMAC-SHA256 signed access tokens.
+ * <p>
+ * Token format: {@code <key id>.<payload>.<signature>}, where the payload is the base64url
+ * encoded {@code userId|admin|expiresAt|username}. Verification needs no database access.
+ * <p>
+ * Keys are configured as {@code auth.token.keys=id1:base64secret,id2:base64secret}. New tokens
+ * are signed with {@code auth.token.active-key-id}; tokens signed with any other configured key
+ * stay valid until they expire, so a key can be rotated by adding a new key, making it active
+ * and removing the old one after one token lifetime.
+ * <p>
+ * Without configured keys a random key is generated per process, as {@link PrincipalCache} does
+ * for its verifier: fine for development, but tokens are rejected by other instances and after
+ * a restart.
+ */
+@Component
+public class AccessTokenHelper {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessTokenHelper.class);
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String EPHEMERAL_KEY_ID = "local";
+    private static final String INVALID_TOKEN_ERROR = "Invalid or expired token.";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Map<String, SecretKeySpec> keys = new HashMap<>();
+    private final String activeKeyId;
+    private final long ttlSeconds;
+    private final Clock clock;
+
+    @Autowired
+    public AccessTokenHelper(@Value("${auth.token.keys:}") String keys,
+                             @Value("${auth.token.active-key-id:}") String activeKeyId,
+                             @Value("${auth.token.ttl-seconds:900}") long ttlSeconds) {
+        this(keys, activeKeyId, ttlSeconds, Clock.systemUTC());
+    }
+
+    AccessTokenHelper(String keys, String activeKeyId, long ttlSeconds, Clock clock) {
+        if (keys.isBlank()) {
+            logger.warn("auth.token.keys is not set, signing tokens with a random key of this process");
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            keys = EPHEMERAL_KEY_ID + ":" + Base64.getEncoder().encodeToString(secret);
+            activeKeyId = EPHEMERAL_KEY_ID;
+        }
+        for (String entry : keys.split(",")) {
+            int separator = entry.indexOf(':');
+            if (separator == -1) {
+                throw new IllegalArgumentException("Token keys must be configured as id:base64secret.");
+            }
+            String id = entry.substring(0, separator).trim();
+            byte[] secret = Base64.getDecoder().decode(entry.substring(separator + 1).trim());
+            this.keys.put(id, new SecretKeySpec(secret, HMAC_ALGORITHM));
+        }
+        if (!this.keys.containsKey(activeKeyId)) {
+            throw new IllegalArgumentException("Active token key " + activeKeyId + " is not configured.");
+        }
+
+        this.activeKeyId = activeKeyId;
+        this.ttlSeconds = ttlSeconds;
+        this.clock = clock;
+    }
+
+    public String issue(User user) {
+        long expiresAt = clock.instant().getEpochSecond() + ttlSeconds;
+        String payload = user.getId() + "|" + (user.isAdmin() ? 1 : 0) + "|" + expiresAt + "|" + user.getUsername();
+        String signedPart = activeKeyId + "." + ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return signedPart + "." + ENCODER.encodeToString(sign(keys.get(activeKeyId), signedPart));
+    }
+
+    public Instant getExpiry(String token) {
+        return Instant.ofEpochSecond(Long.parseLong(parsePayload(token)[2]));
+    }
+
+    /**
+     * Returns a user carrying the id, username and admin flag from the token.
+     *
+     * @throws AuthorizationException if the token is malformed, tampered with, signed with an
+     *                                unknown key or expired
+     */
+    public User verify(String token) {
+        String[] fields = parsePayload(token);
+        try {
+            long expiresAt = Long.parseLong(fields[2]);
+            if (clock.instant().getEpochSecond() >= expiresAt) {
+                throw new AuthorizationException(INVALID_TOKEN_ERROR);
+            }
+            return new User(Integer.parseInt(fields[0]), fields[3], null, fields[1].equals("1"));
+        } catch (NumberFormatException e) {
+            throw new AuthorizationException(INVALID_TOKEN_ERROR);
+        }
+    }
+
+    private String[] parsePayload(String token) {
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot == firstDot) {
+            throw new AuthorizationException(INVALID_TOKEN_ERROR);
+        }
+
+        SecretKeySpec key = keys.get(token.substring(0, firstDot));
+        if (key == null) {
+            throw new AuthorizationException(INVALID_TOKEN_ERROR);
+        }
+
+        try {
+            String signedPart = token.substring(0, lastDot);
+            byte[] signature = DECODER.decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(signature, sign(key, signedPart))) {
+                throw new AuthorizationException(INVALID_TOKEN_ERROR);
+            }
+
+            String payload = new String(DECODER.decode(token.substring(firstDot + 1, lastDot)), StandardCharsets.UTF_8);
+            String[] fields = payload.split("\\|", 4);
+            if (fields.length != 4) {
+                throw new AuthorizationException(INVALID_TOKEN_ERROR);
+            }
+            return fields;
+        } catch (IllegalArgumentException e) {
+            throw new AuthorizationException(INVALID_TOKEN_ERROR);
+        }
+    }
+
+    private static byte[] sign(SecretKeySpec key, String data) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(data.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -6,37 +6,58 @@ import com.company.web.springdemo.models.User;
 import com.company.web.springdemo.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
-import org.springframework.web.server.ResponseStatusException;
 
 @Component
 public class AuthenticationHelper {
     private static final String AUTHORIZATION_HEADER_NAME = "Authorization";
+    private static final String BEARER_PREFIX = "Bearer ";
     private static final String INVALID_AUTHENTICATION_ERROR = "Invalid authentication.";
 
     private final UserService userService;
+    private final PrincipalCache principalCache;
+    private final AccessTokenHelper accessTokenHelper;
 
     @Autowired
-    public AuthenticationHelper(UserService userService) {
+    public AuthenticationHelper(UserService userService,
+                                PrincipalCache principalCache,
+                                AccessTokenHelper accessTokenHelper) {
         this.userService = userService;
+        this.principalCache = principalCache;
+        this.accessTokenHelper = accessTokenHelper;
     }
 
+    /**
+     * Accepts either a signed access token ({@code Bearer <token>}), verified without any
+     * database access, or the legacy {@code username password} credentials.
+     */
     public User tryGetUser(HttpHeaders headers) {
         if (!headers.containsKey(AUTHORIZATION_HEADER_NAME)) {
             throw new AuthorizationException(INVALID_AUTHENTICATION_ERROR);
         }
 
+        String userInfo = headers.getFirst(AUTHORIZATION_HEADER_NAME);
+        if (userInfo.startsWith(BEARER_PREFIX)) {
+            return accessTokenHelper.verify(userInfo.substring(BEARER_PREFIX.length()).trim());
+        }
+
+        return authenticate(getUsername(userInfo), getPassword(userInfo));
+    }
+
+    public User authenticate(String username, String password) {
         try {
-            String userInfo = headers.getFirst(AUTHORIZATION_HEADER_NAME);
-            String username = getUsername(userInfo);
-            String password = getPassword(userInfo);
+            User cachedUser = principalCache.get(username, password);
+            if (cachedUser != null) {
+                return cachedUser;
+            }
+
             User user = userService.get(username);
 
             if (!user.getPassword().equals(password)) {
                 throw new AuthorizationException(INVALID_AUTHENTICATION_ERROR);
             }
 
+            principalCache.put(user);
             return user;
         } catch (EntityNotFoundException e) {
             throw new AuthorizationException(INVALID_AUTHENTICATION_ERROR);
@@ -0,0 +1,225 @@
+package com.company.web.springdemo.helpers;
+
+import com.company.web.springdemo.models.BeerImportRow;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Parses beer import files one record at a time, so only the current record is held in memory.
+ * <p>
+ * CSV files start with a header naming the {@code name}, {@code abv} and {@code style} columns
+ * (any order, extra columns are ignored); fields may be quoted with {@code "}, a quote inside a
+ * quoted field is written as {@code ""}, and a quoted field may span lines (line breaks inside it
+ * are read as {@code \n}), which is how the CSV export writes them. NDJSON files have one object per
+ * line with the same three properties. Records that cannot be parsed are returned as malformed
+ * rows, not thrown; a row reports the line it starts on.
+ */
+@Component
+public class BeerImportParser {
+
+    private static final String NAME_COLUMN = "name";
+    private static final String ABV_COLUMN = "abv";
+    private static final String STYLE_COLUMN = "style";
+    // An unterminated quote would otherwise pull the rest of the file into one record.
+    private static final int MAX_RECORD_CHARS = 64 * 1024;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public BeerImportParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public Iterator<BeerImportRow> parseCsv(BufferedReader reader) {
+        String header = readLine(reader);
+        if (header == null) {
+            return new ArrayList<BeerImportRow>().iterator();
+        }
+        List<String> columns = splitCsvLine(header).stream()
+                .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        int nameColumn = columns.indexOf(NAME_COLUMN);
+        int abvColumn = columns.indexOf(ABV_COLUMN);
+        int styleColumn = columns.indexOf(STYLE_COLUMN);
+        if (nameColumn == -1 || abvColumn == -1 || styleColumn == -1) {
+            throw new IllegalArgumentException("The CSV header must contain the columns name, abv and style.");
+        }
+
+        // The header is line 1.
+        return new LineIterator(reader, 2) {
+            @Override
+            boolean togglesQuote(String text) {
+                return countQuotes(text) % 2 == 1;
+            }
+
+            @Override
+            BeerImportRow parse(long line, String text) {
+                if (countQuotes(text) % 2 == 1) {
+                    return BeerImportRow.malformed(line, "Unterminated quoted field.");
+                }
+                List<String> fields = splitCsvLine(text);
+                int needed = Math.max(nameColumn, Math.max(abvColumn, styleColumn)) + 1;
+                if (fields.size() < needed) {
+                    return BeerImportRow.malformed(line, "Expected at least " + needed + " fields.");
+                }
+                return row(line, fields.get(nameColumn), fields.get(abvColumn), fields.get(styleColumn));
+            }
+        };
+    }
+
+    public Iterator<BeerImportRow> parseNdjson(BufferedReader reader) {
+        return new LineIterator(reader, 1) {
+            @Override
+            BeerImportRow parse(long line, String text) {
+                try {
+                    JsonNode node = objectMapper.readTree(text);
+                    if (!node.isObject()) {
+                        return BeerImportRow.malformed(line, "Expected a JSON object.");
+                    }
+                    return row(line, textOf(node, NAME_COLUMN), textOf(node, ABV_COLUMN), textOf(node, STYLE_COLUMN));
+                } catch (JsonProcessingException e) {
+                    return BeerImportRow.malformed(line, "Invalid JSON.");
+                }
+            }
+        };
+    }
+
+    private static BeerImportRow row(long line, String name, String abv, String styleName) {
+        if (abv == null || abv.isBlank()) {
+            return BeerImportRow.malformed(line, "ABV is missing.");
+        }
+        try {
+            return BeerImportRow.of(line, name == null ? null : name.trim(), Double.parseDouble(abv.trim()),
+                    styleName == null ? null : styleName.trim());
+        } catch (NumberFormatException e) {
+            return BeerImportRow.malformed(line, "ABV is not a number.");
+        }
+    }
+
+    private static String textOf(JsonNode node, String property) {
+        JsonNode value = node.get(property);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static int countQuotes(String text) {
+        int quotes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes;
+    }
+
+    private static String readLine(BufferedReader reader) {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private abstract static class LineIterator implements Iterator<BeerImportRow> {
+
+        private final BufferedReader reader;
+        private long nextLineNumber;
+        private String next;
+        private int nextLines;
+
+        private LineIterator(BufferedReader reader, long firstLineNumber) {
+            this.reader = reader;
+            this.nextLineNumber = firstLineNumber;
+        }
+
+        abstract BeerImportRow parse(long line, String text);
+
+        /**
+         * Whether the line opens or closes a record that continues on the next line.
+         */
+        boolean togglesQuote(String text) {
+            return false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                String text = readLine(reader);
+                if (text == null) {
+                    return false;
+                }
+                if (text.isBlank()) {
+                    nextLineNumber++;
+                    continue;
+                }
+                nextLines = 1;
+                boolean open = togglesQuote(text);
+                if (open) {
+                    StringBuilder record = new StringBuilder(text);
+                    while (open && record.length() <= MAX_RECORD_CHARS) {
+                        String more = readLine(reader);
+                        if (more == null) {
+                            break;
+                        }
+                        record.append('\n').append(more);
+                        nextLines++;
+                        open ^= togglesQuote(more);
+                    }
+                    text = record.toString();
+                }
+                next = text;
+            }
+            return true;
+        }
+
+        @Override
+        public BeerImportRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            BeerImportRow row = parse(nextLineNumber, next);
+            nextLineNumber += nextLines;
+            next = null;
+            return row;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.company.web.springdemo.helpers;
+
+import com.company.web.springdemo.models.BeerSummary;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes beer rows to a response body as they are read from the database.
+ * Output is flushed every {@value #FLUSH_EVERY_ROWS} rows, so the client starts
+ * receiving data before the query has finished and no more than that many rows
+ * are ever buffered.
+ */
+@Component
+public class BeerStreamWriter {
+
+    private static final int FLUSH_EVERY_ROWS = 100;
+    private static final String CSV_HEADER = "id,name,abv,style_id,style,creator_id,creator";
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public BeerStreamWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void writeJsonArray(Stream<BeerSummary> beers, OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartArray();
+            writeRows(beers, json, false);
+            json.writeEndArray();
+        }
+    }
+
+    public void writeNdjson(Stream<BeerSummary> beers, OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            writeRows(beers, json, true);
+        }
+    }
+
+    public void writeCsv(Stream<BeerSummary> beers, OutputStream out) throws IOException {
+        try (Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            csv.write(CSV_HEADER);
+            csv.write('\n');
+
+            int rows = 0;
+            Iterator<BeerSummary> iterator = beers.iterator();
+            while (iterator.hasNext()) {
+                BeerSummary beer = iterator.next();
+                csv.write(String.valueOf(beer.getId()));
+                csv.write(',');
+                writeCsvField(csv, beer.getName());
+                csv.write(',');
+                csv.write(String.valueOf(beer.getAbv()));
+                csv.write(',');
+                csv.write(String.valueOf(beer.getStyleId()));
+                csv.write(',');
+                writeCsvField(csv, beer.getStyleName());
+                csv.write(',');
+                if (beer.getCreatorId() != null) {
+                    csv.write(String.valueOf(beer.getCreatorId()));
+                    csv.write(',');
+                    writeCsvField(csv, beer.getCreatorUsername());
+                } else {
+                    csv.write(',');
+                }
+                csv.write('\n');
+                if (++rows % FLUSH_EVERY_ROWS == 0) {
+                    csv.flush();
+                }
+            }
+        }
+    }
+
+    private static void writeCsvField(Writer csv, String value) throws IOException {
+        if (value == null) {
+            // The response is already committed, so a missing value is an empty field rather than an error.
+            return;
+        }
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1 && value.indexOf('\r') == -1) {
+            csv.write(value);
+            return;
+        }
+        csv.write('"');
+        csv.write(value.replace("\"", "\"\""));
+        csv.write('"');
+    }
+
+    private void writeRows(Stream<BeerSummary> beers, JsonGenerator json, boolean lineDelimited) throws IOException {
+        int rows = 0;
+        Iterator<BeerSummary> iterator = beers.iterator();
+        while (iterator.hasNext()) {
+            writeBeer(json, iterator.next());
+            if (lineDelimited) {
+                json.writeRaw('\n');
+            }
+            if (++rows % FLUSH_EVERY_ROWS == 0) {
+                json.flush();
+            }
+        }
+    }
+
+    private void writeBeer(JsonGenerator json, BeerSummary beer) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", beer.getId());
+        json.writeStringField("name", beer.getName());
+        json.writeNumberField("abv", beer.getAbv());
+
+        json.writeObjectFieldStart("style");
+        json.writeNumberField("id", beer.getStyleId());
+        json.writeStringField("name", beer.getStyleName());
+        json.writeEndObject();
+
+        if (beer.getCreatorId() != null) {
+            json.writeObjectFieldStart("createdBy");
+            json.writeNumberField("id", beer.getCreatorId());
+            json.writeStringField("username", beer.getCreatorUsername());
+            json.writeEndObject();
+        } else {
+            json.writeNullField("createdBy");
+        }
+
+        json.writeEndObject();
+    }
+}
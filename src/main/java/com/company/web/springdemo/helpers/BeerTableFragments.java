@@ -0,0 +1,104 @@
+package com.company.web.springdemo.helpers;
+
+import com.company.web.springdemo.models.ChangeStamp;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the rendered beer table of {@code BeersView}, keyed by the normalized filter, sort
+ * and page parameters, so repeated browse pages skip both the repository and the template.
+ * <p>
+ * Keys start with the stamp of the beer collection, which is read from the database: it changes
+ * when a beer is added, removed or written, or when the style or creator of any beer is, on any
+ * instance or directly in the database (as long as the write increments the version column). So
+ * a write makes all earlier entries unreachable; they are dropped as soon as a request sees the
+ * new stamp. The cache is bounded by the size of the rendered HTML
+ * ({@code beers.view.fragment-cache.max-bytes}, 0 turns it off). Hit/miss counters are
+ * published as cache.* meters tagged cache=beer-table-fragments.
+ */
+@Component
+public class BeerTableFragments implements MeterBinder {
+
+    private static final String TEMPLATE = "fragments/BeerTable";
+    private static final Set<String> FRAGMENT = Set.of("beerTable");
+    // Rough per-entry cost of the key, the entry and the string headers
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    private final ITemplateEngine templateEngine;
+    private final JakartaServletWebApplication application;
+    private final Cache<List<Object>, String> cache;
+    private volatile String currentStamp;
+
+    @Autowired
+    public BeerTableFragments(ITemplateEngine templateEngine,
+                              ServletContext servletContext,
+                              @Value("${beers.view.fragment-cache.max-bytes:0}") long maxBytes) {
+        this.templateEngine = templateEngine;
+        this.application = JakartaServletWebApplication.buildApplication(servletContext);
+        this.cache = maxBytes <= 0 ? null : Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<List<Object>, String>weigher((key, html) -> ENTRY_OVERHEAD_BYTES + 2 * (key.toString().length() + html.length()))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the rendered table for the given parameters, rendering it from the variables only
+     * on a cache miss. {@code stamp} is the current stamp of the beer collection; without one
+     * nothing is cached.
+     */
+    public String render(List<Object> parameters,
+                         ChangeStamp stamp,
+                         HttpServletRequest request,
+                         HttpServletResponse response,
+                         Supplier<Map<String, Object>> variables) {
+        if (cache == null || stamp == null) {
+            return process(request, response, variables.get());
+        }
+        if (!stamp.getTag().equals(currentStamp)) {
+            currentStamp = stamp.getTag();
+            cache.invalidateAll();
+        }
+        List<Object> key = new ArrayList<>(parameters.size() + 1);
+        key.add(stamp.getTag());
+        key.addAll(parameters);
+        // Not cache.get(key, loader): the loader reads the database inside a synchronized map
+        // bin, which pins the carrier of a virtual thread. Concurrent misses just render twice.
+        String html = cache.getIfPresent(key);
+        if (html == null) {
+            html = process(request, response, variables.get());
+            cache.put(key, html);
+        }
+        return html;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (cache != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, "beer-table-fragments");
+        }
+    }
+
+    private String process(HttpServletRequest request, HttpServletResponse response, Map<String, Object> variables) {
+        WebContext context = new WebContext(application.buildExchange(request, response), request.getLocale(), variables);
+        return templateEngine.process(TEMPLATE, FRAGMENT, context);
+    }
+}
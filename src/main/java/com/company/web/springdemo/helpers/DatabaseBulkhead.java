@@ -0,0 +1,156 @@
+package com.company.web.springdemo.helpers;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit on database work, so that many request threads (virtual threads in
+ * particular, which are not capped by a pool) wait in one fair queue instead of piling onto the
+ * connection pool.
+ * <p>
+ * A permit is taken when a connection is borrowed through a {@link #wrap(DataSource) wrapped}
+ * data source and given back when it is closed, so it covers Hibernate sessions and raw JDBC
+ * alike. At most {@code database.bulkhead.max-concurrent} connections are in use (by default
+ * the pool size); a caller that gets no permit within {@code database.bulkhead.max-wait-ms}
+ * fails with {@link SQLTransientConnectionException}, like a pool timeout. Published as
+ * db.bulkhead.running, db.bulkhead.queued, db.bulkhead.limit and db.bulkhead.rejected.
+ * <p>
+ * At the default limit the permits mirror the pool's connections, so the bulkhead does not change
+ * how many statements run at once; Hikari would queue the same threads. What it adds is the order
+ * and the bound of the wait: Hikari lets a thread that just arrived take a connection that was
+ * returned while others were already waiting, so under overload some requests wait much longer
+ * than the rest, while the fair semaphore serves waiters in arrival order. And the wait gives up
+ * after {@code max-wait-ms}, set below the pool's connection timeout, so requests fail fast and
+ * the rejections are counted here rather than mixed with other pool timeouts. A lower limit
+ * caps database concurrency below the pool size for all callers.
+ */
+@Component
+public class DatabaseBulkhead implements MeterBinder {
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long maxWaitMillis;
+    private final LongAdder rejected = new LongAdder();
+
+    @Autowired
+    public DatabaseBulkhead(@Value("${database.bulkhead.max-concurrent:${database.pool.max-size:20}}") int maxConcurrent,
+                            @Value("${database.bulkhead.max-wait-ms:2000}") long maxWaitMillis) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Returns a data source that borrows connections from the given one only within the limit.
+     */
+    public DataSource wrap(DataSource dataSource) {
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                acquire();
+                try {
+                    return releaseOnClose(super.getConnection());
+                } catch (SQLException | RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                acquire();
+                try {
+                    return releaseOnClose(super.getConnection(username, password));
+                } catch (SQLException | RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+        };
+    }
+
+    public int getRunning() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getQueued() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("db.bulkhead.running", this, DatabaseBulkhead::getRunning)
+                .description("Connections in use within the database bulkhead")
+                .register(registry);
+        Gauge.builder("db.bulkhead.queued", this, DatabaseBulkhead::getQueued)
+                .description("Threads waiting for a database bulkhead permit")
+                .register(registry);
+        Gauge.builder("db.bulkhead.limit", this, bulkhead -> bulkhead.maxConcurrent)
+                .register(registry);
+        FunctionCounter.builder("db.bulkhead.rejected", rejected, LongAdder::sum)
+                .description("Requests for a connection that timed out waiting for a permit")
+                .register(registry);
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new SQLTransientConnectionException("Database bulkhead - no permit available, "
+                        + getQueued() + " waiting, request timed out after " + maxWaitMillis + "ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database bulkhead permit.", e);
+        }
+    }
+
+    private Connection releaseOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                try {
+                    return invoke(connection, method, args);
+                } finally {
+                    permits.release();
+                }
+            }
+            return invoke(connection, method, args);
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static Object invoke(Connection connection, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
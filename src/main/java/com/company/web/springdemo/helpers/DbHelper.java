@@ -1,25 +1,27 @@
 package com.company.web.springdemo.helpers;
 
-import org.springframework.context.annotation.PropertySource;
-import org.springframework.core.env.Environment;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 @Component
-@PropertySource("classpath:application.properties")
 public class DbHelper {
-    private final String dbUrl, dbUsername, dbPassword;
 
-    public DbHelper(Environment env) {
-        dbUrl = env.getProperty("database.url");
-        dbUsername = env.getProperty("database.username");
-        dbPassword = env.getProperty("database.password");
+    private final DataSource dataSource;
+
+    @Autowired
+    public DbHelper(DataSource dataSource, DatabaseBulkhead bulkhead) {
+        this.dataSource = bulkhead.wrap(dataSource);
     }
 
+    /**
+     * Borrows a connection from the shared pool within the database bulkhead; closing it returns
+     * it to the pool.
+     */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(dbUrl, dbUsername, dbPassword);
+        return dataSource.getConnection();
     }
 }
@@ -0,0 +1,37 @@
+package com.company.web.springdemo.helpers;
+
+import com.company.web.springdemo.models.ChangeStamp;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stamps of single beers and wishlists are read from the database, so their ETags are the same on
+ * every instance and across restarts; stamps kept in memory carry their own instance prefix.
+ */
+@Component
+public class ETagHelper {
+
+    public String toETag(ChangeStamp stamp) {
+        return "\"" + stamp.getTag() + "\"";
+    }
+
+    /**
+     * Returns the stamp tags listed in an If-Match header, or null if there is no header or it is
+     * {@code *}. Weak tags are left out, since they can never match.
+     */
+    public List<String> parseIfMatch(String header) {
+        if (header == null || header.isBlank() || header.trim().equals("*")) {
+            return null;
+        }
+        List<String> tags = new ArrayList<>();
+        for (String etag : header.split(",")) {
+            String trimmed = etag.trim();
+            if (trimmed.length() > 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+                tags.add(trimmed.substring(1, trimmed.length() - 1));
+            }
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,43 @@
+package com.company.web.springdemo.helpers;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * Iterator for {@code th:each} that flushes the response every {@code rowsPerFlush} rows, so a
+ * page rendered from a stream reaches the browser in chunks while the rest is still produced.
+ */
+public class FlushingIterator<T> implements Iterator<T> {
+
+    private final Iterator<T> delegate;
+    private final HttpServletResponse response;
+    private final int rowsPerFlush;
+    private int rows;
+
+    public FlushingIterator(Iterator<T> delegate, HttpServletResponse response, int rowsPerFlush) {
+        this.delegate = delegate;
+        this.response = response;
+        this.rowsPerFlush = rowsPerFlush;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return delegate.hasNext();
+    }
+
+    @Override
+    public T next() {
+        // Everything rendered so far (the page head and earlier rows) goes out before the next chunk.
+        if (rows++ % rowsPerFlush == 0) {
+            try {
+                response.flushBuffer();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return delegate.next();
+    }
+}
@@ -0,0 +1,113 @@
+package com.company.web.springdemo.helpers;
+
+import com.company.web.springdemo.models.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+
+/**
+ * Bounded, expiring cache of authenticated users keyed by username.
+ * <p>
+ * The user's profile is kept with a keyed hash of the password instead of the password itself
+ * (the key is random per process, so the cache never holds a usable credential). A hit returns
+ * a copy of the full profile, as loaded from the database but without the password, since the
+ * principal can end up in responses (for example as the creator of a new beer).
+ * Hit/miss counters are published as cache.* meters tagged cache=principals.
+ */
+@Component
+public class PrincipalCache implements MeterBinder {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final Cache<String, CachedPrincipal> cache;
+    private final SecretKeySpec verifierKey;
+
+    @Autowired
+    public PrincipalCache(@Value("${auth.principal-cache.max-size:10000}") long maxSize,
+                          @Value("${auth.principal-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.verifierKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+    }
+
+    /**
+     * Returns the cached user if the password matches. Returns null on a cache miss or a
+     * mismatch, so the caller verifies against the database (the password may have changed).
+     */
+    public User get(String username, String password) {
+        CachedPrincipal principal = cache.getIfPresent(username);
+        if (principal == null || !MessageDigest.isEqual(principal.verifier, verifier(password))) {
+            return null;
+        }
+        User user = new User(principal.id, principal.username, null, principal.admin);
+        user.setFirstName(principal.firstName);
+        user.setLastName(principal.lastName);
+        user.setEmail(principal.email);
+        user.setVersion(principal.version);
+        return user;
+    }
+
+    public void put(User user) {
+        cache.put(user.getUsername(), new CachedPrincipal(user, verifier(user.getPassword())));
+    }
+
+    public void invalidate(int userId) {
+        cache.asMap().values().removeIf(principal -> principal.id == userId);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "principals");
+    }
+
+    private byte[] verifier(String password) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(verifierKey);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class CachedPrincipal {
+        private final int id;
+        private final String username;
+        private final String firstName;
+        private final String lastName;
+        private final String email;
+        private final boolean admin;
+        private final long version;
+        private final byte[] verifier;
+
+        private CachedPrincipal(User user, byte[] verifier) {
+            this.id = user.getId();
+            this.username = user.getUsername();
+            this.firstName = user.getFirstName();
+            this.lastName = user.getLastName();
+            this.email = user.getEmail();
+            this.admin = user.isAdmin();
+            this.version = user.getVersion();
+            this.verifier = verifier;
+        }
+    }
+}
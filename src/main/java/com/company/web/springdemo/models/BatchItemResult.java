@@ -0,0 +1,51 @@
+package com.company.web.springdemo.models;
+
+/**
+ * Outcome of one item of a batch request, in the position it had in the request.
+ */
+public class BatchItemResult {
+
+    public enum Status {
+        CREATED,
+        INVALID,
+        DUPLICATE,
+        NOT_FOUND,
+        FAILED
+    }
+
+    private final int index;
+    private final Status status;
+    private final Integer id;
+    private final String message;
+
+    public BatchItemResult(int index, Status status, Integer id, String message) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.message = message;
+    }
+
+    public static BatchItemResult created(int index, int id) {
+        return new BatchItemResult(index, Status.CREATED, id, null);
+    }
+
+    public static BatchItemResult rejected(int index, Status status, String message) {
+        return new BatchItemResult(index, status, null, message);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
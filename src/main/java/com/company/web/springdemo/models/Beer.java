@@ -2,15 +2,29 @@ package com.company.web.springdemo.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
 @Entity
 @Table(name = "beers")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "beers")
+@NamedEntityGraph(name = Beer.WITH_STYLE_AND_CREATOR, attributeNodes = {
+        @NamedAttributeNode("style"),
+        @NamedAttributeNode("createdBy")
+})
 public class Beer {
 
+    /**
+     * Fetch plan for the listing and detail paths, which render the style and the creator.
+     */
+    public static final String WITH_STYLE_AND_CREATOR = "Beer.withStyleAndCreator";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "beers_seq")
+    @SequenceGenerator(name = "beers_seq", sequenceName = "beers_seq", allocationSize = 50)
     @Column(name = "beer_id")
     private int id;
 
@@ -20,14 +34,19 @@ public class Beer {
     @Column(name = "abv")
     private double abv;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "style_id")
     private Style style;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "creator_id")
     private User createdBy;
 
+    @Version
+    @Column(name = "version")
+    @JsonIgnore
+    private long version;
+
 
     public Beer() {
     }
@@ -77,4 +96,12 @@ public class Beer {
     public void setCreatedBy(User createdBy) {
         this.createdBy = createdBy;
     }
-}
\ No newline at end of file
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,54 @@
+package com.company.web.springdemo.models;
+
+/**
+ * One record of an import file. Either the fields are set, or {@code error} says why the
+ * record could not be parsed.
+ */
+public class BeerImportRow {
+
+    private final long line;
+    private final String name;
+    private final Double abv;
+    private final String styleName;
+    private final String error;
+
+    private BeerImportRow(long line, String name, Double abv, String styleName, String error) {
+        this.line = line;
+        this.name = name;
+        this.abv = abv;
+        this.styleName = styleName;
+        this.error = error;
+    }
+
+    public static BeerImportRow of(long line, String name, Double abv, String styleName) {
+        return new BeerImportRow(line, name, abv, styleName, null);
+    }
+
+    public static BeerImportRow malformed(long line, String error) {
+        return new BeerImportRow(line, null, null, null, error);
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Double getAbv() {
+        return abv;
+    }
+
+    public String getStyleName() {
+        return styleName;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isMalformed() {
+        return error != null;
+    }
+}
@@ -0,0 +1,55 @@
+package com.company.web.springdemo.models;
+
+/**
+ * Flat, read-only projection of a beer row used by the streaming read paths,
+ * so rows can be written out without hydrating Beer, Style and User entities.
+ */
+public class BeerSummary {
+
+    private final int id;
+    private final String name;
+    private final double abv;
+    private final int styleId;
+    private final String styleName;
+    private final Integer creatorId;
+    private final String creatorUsername;
+
+    public BeerSummary(int id, String name, double abv, int styleId, String styleName,
+                       Integer creatorId, String creatorUsername) {
+        this.id = id;
+        this.name = name;
+        this.abv = abv;
+        this.styleId = styleId;
+        this.styleName = styleName;
+        this.creatorId = creatorId;
+        this.creatorUsername = creatorUsername;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getAbv() {
+        return abv;
+    }
+
+    public int getStyleId() {
+        return styleId;
+    }
+
+    public String getStyleName() {
+        return styleName;
+    }
+
+    public Integer getCreatorId() {
+        return creatorId;
+    }
+
+    public String getCreatorUsername() {
+        return creatorUsername;
+    }
+}
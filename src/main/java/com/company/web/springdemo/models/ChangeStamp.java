@@ -0,0 +1,43 @@
+package com.company.web.springdemo.models;
+
+/**
+ * Cheap marker of the state of a beer, the beer collection or a wishlist: the tag changes with
+ * every write that changes the representation, and {@code lastModified} is never earlier than
+ * that write, or -1 if it is not known (then only the tag is compared). Controllers derive ETag
+ * and Last-Modified headers from it without loading data.
+ */
+public class ChangeStamp {
+
+    private final String tag;
+    private final long lastModified;
+    private final long version;
+
+    public ChangeStamp(String tag, long lastModified) {
+        this(tag, lastModified, -1);
+    }
+
+    /**
+     * @param version version column of the row the stamp was read from, for stamps of one entity
+     */
+    public ChangeStamp(String tag, long lastModified, long version) {
+        this.tag = tag;
+        this.lastModified = lastModified;
+        this.version = version;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Returns the version column of the entity the stamp was read from, or -1 for stamps of a
+     * collection.
+     */
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,66 @@
+package com.company.web.springdemo.models;
+
+public class FilterOptions {
+
+    public static final String SORT_BY_ID = "id";
+    public static final String SORT_BY_NAME = "name";
+    public static final String SORT_BY_ABV = "abv";
+
+    private final String name;
+    private final Double minAbv;
+    private final Double maxAbv;
+    private final String styleName;
+    private final String sortBy;
+    private final boolean descending;
+
+    public FilterOptions(String name, Double minAbv, Double maxAbv, String styleName, String sortBy, String sortOrder) {
+        // Normalize ABV bounds if swapped
+        if (minAbv != null && maxAbv != null && minAbv > maxAbv) {
+            double t = minAbv; minAbv = maxAbv; maxAbv = t;
+        }
+
+        this.name = (name == null || name.isBlank()) ? null : name;
+        this.minAbv = minAbv;
+        this.maxAbv = maxAbv;
+        this.styleName = (styleName == null || styleName.isBlank()) ? null : styleName;
+        this.sortBy = normalizeSortBy(sortBy);
+        this.descending = sortOrder != null && sortOrder.equalsIgnoreCase("desc");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Double getMinAbv() {
+        return minAbv;
+    }
+
+    public Double getMaxAbv() {
+        return maxAbv;
+    }
+
+    public String getStyleName() {
+        return styleName;
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    // --- Sorting (whitelist) ---
+    private static String normalizeSortBy(String sortBy) {
+        if (sortBy == null) {
+            return SORT_BY_NAME;
+        }
+        return switch (sortBy) {
+            case SORT_BY_ID -> SORT_BY_ID;
+            case SORT_BY_ABV -> SORT_BY_ABV;
+            // add more allowed props here, e.g. case "ibu" -> "ibu";
+            default -> SORT_BY_NAME;
+        };
+    }
+}
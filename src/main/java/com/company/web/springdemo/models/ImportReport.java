@@ -0,0 +1,68 @@
+package com.company.web.springdemo.models;
+
+import java.util.List;
+
+public class ImportReport {
+
+    private final long rowsRead;
+    private final long created;
+    private final long rejected;
+    private final long elapsedMillis;
+    private final long rowsPerSecond;
+    private final List<RowError> errors;
+
+    public ImportReport(long rowsRead, long created, long rejected, long elapsedMillis, List<RowError> errors) {
+        this.rowsRead = rowsRead;
+        this.created = created;
+        this.rejected = rejected;
+        this.elapsedMillis = elapsedMillis;
+        this.rowsPerSecond = elapsedMillis == 0 ? rowsRead : rowsRead * 1000 / elapsedMillis;
+        this.errors = errors;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    /**
+     * The first rejected rows with the reason; {@link #getRejected()} has the full count.
+     */
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public static class RowError {
+
+        private final long line;
+        private final String message;
+
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
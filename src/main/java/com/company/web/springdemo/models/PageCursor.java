@@ -0,0 +1,98 @@
+package com.company.web.springdemo.models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a page in a keyset-paginated listing: the value of the sort
+ * key plus the id used as a tie-breaker. Clients only see it as an opaque token.
+ */
+public class PageCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final String sortBy;
+    private final boolean descending;
+    private final int id;
+    private final String value;
+
+    public PageCursor(String sortBy, boolean descending, int id, String value) {
+        this.sortBy = sortBy;
+        this.descending = descending;
+        this.id = id;
+        this.value = value;
+    }
+
+    public static PageCursor after(Beer beer, FilterOptions filterOptions) {
+        String value = switch (filterOptions.getSortBy()) {
+            case FilterOptions.SORT_BY_ABV -> String.valueOf(beer.getAbv());
+            case FilterOptions.SORT_BY_ID -> "";
+            default -> beer.getName();
+        };
+        return new PageCursor(filterOptions.getSortBy(), filterOptions.isDescending(), beer.getId(), value);
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}. The token must have been issued for the
+     * same sort key and direction as the current request.
+     *
+     * @throws IllegalArgumentException if the token is malformed or belongs to another sort
+     */
+    public static PageCursor decode(String token, FilterOptions filterOptions) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+
+        int first = decoded.indexOf(SEPARATOR);
+        int second = decoded.indexOf(SEPARATOR, first + 1);
+        int third = decoded.indexOf(SEPARATOR, second + 1);
+        if (first == -1 || second == -1 || third == -1) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+
+        String sortBy = decoded.substring(0, first);
+        boolean descending = decoded.substring(first + 1, second).equals("d");
+        if (!sortBy.equals(filterOptions.getSortBy()) || descending != filterOptions.isDescending()) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort order.");
+        }
+
+        try {
+            int id = Integer.parseInt(decoded.substring(second + 1, third));
+            String value = decoded.substring(third + 1);
+            if (sortBy.equals(FilterOptions.SORT_BY_ABV)) {
+                Double.parseDouble(value);
+            }
+            return new PageCursor(sortBy, descending, id, value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+
+    public String encode() {
+        String raw = sortBy + SEPARATOR + (descending ? "d" : "a") + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public double getAbvValue() {
+        return Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,38 @@
+package com.company.web.springdemo.models;
+
+public class PopularBeer {
+
+    private final int id;
+    private final String name;
+    private final double abv;
+    private final String styleName;
+    private final long wishListCount;
+
+    public PopularBeer(int id, String name, double abv, String styleName, long wishListCount) {
+        this.id = id;
+        this.name = name;
+        this.abv = abv;
+        this.styleName = styleName;
+        this.wishListCount = wishListCount;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getAbv() {
+        return abv;
+    }
+
+    public String getStyleName() {
+        return styleName;
+    }
+
+    public long getWishListCount() {
+        return wishListCount;
+    }
+}
@@ -0,0 +1,22 @@
+package com.company.web.springdemo.models;
+
+import java.time.Instant;
+
+public class TokenDto {
+
+    private final String token;
+    private final Instant expiresAt;
+
+    public TokenDto(String token, Instant expiresAt) {
+        this.token = token;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -1,18 +1,25 @@
 package com.company.web.springdemo.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table (name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 public class User {
 
     @Id
-    @GeneratedValue (strategy = GenerationType.IDENTITY)
+    @GeneratedValue (strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator (name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     @Column (name = "user_id")
     private int id;
 
@@ -34,7 +41,13 @@ public class User {
     @Column (name = "is_admin")
     private boolean isAdmin;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @Version
+    @Column (name = "version")
+    @JsonIgnore
+    private long version;
+
+    @ManyToMany(fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users.wishlist")
     @JsonIgnore
     @JoinTable(
             name = "wishlists",
@@ -116,4 +129,12 @@ public class User {
     public void setAdmin(boolean admin) {
         isAdmin = admin;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
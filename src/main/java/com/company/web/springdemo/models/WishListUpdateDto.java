@@ -0,0 +1,30 @@
+package com.company.web.springdemo.models;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class WishListUpdateDto {
+
+    private Set<Integer> add = new HashSet<>();
+
+    private Set<Integer> remove = new HashSet<>();
+
+    public WishListUpdateDto() {
+    }
+
+    public Set<Integer> getAdd() {
+        return add;
+    }
+
+    public void setAdd(Set<Integer> add) {
+        this.add = add == null ? new HashSet<>() : add;
+    }
+
+    public Set<Integer> getRemove() {
+        return remove;
+    }
+
+    public void setRemove(Set<Integer> remove) {
+        this.remove = remove == null ? new HashSet<>() : remove;
+    }
+}
@@ -0,0 +1,743 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.models.BeerSummary;
+import com.company.web.springdemo.models.ChangeStamp;
+import com.company.web.springdemo.models.FilterOptions;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-optimized, in-memory copy of the beer catalog that answers the filter and sort queries
+ * of {@code GET /api/beers} without touching the database.
+ * <p>
+ * A snapshot keeps one primitive column per filterable field (abv, style) plus sort
+ * permutations by id, name and abv, and is never modified once published. A filter walks the
+ * permutation for the requested sort and only allocates the result list; the rows themselves are
+ * shared, immutable {@link BeerSummary} instances. An ABV range sorted by ABV is found by binary
+ * search. A name filter the {@link BeerNameIndex} can answer only sorts and checks the beers the
+ * index returns; any other filter scans the whole permutation, so it costs O(n) per query. The
+ * index holds the names of the snapshot: it is built with every rebuild and patched with every
+ * refresh, and the snapshot is checked against its candidates, so it never changes a result.
+ * <p>
+ * Names are matched and sorted like the case- and accent-insensitive collation of the column:
+ * filters use {@link BeerNameIndex#fold(String) folded} names and the name order comes from a
+ * root-locale collator at primary strength.
+ * <p>
+ * Beer writes go through {@link #refresh(int...)}, which re-reads the changed rows and patches a
+ * copy of the snapshot (copy-on-write): changed rows are taken out of the permutations and merged
+ * back in at their sorted position, so a write costs one keyed read plus O(n) array copies, never
+ * a sort. The read happens outside the lock, so concurrent writes only wait for each other's
+ * patch, and a row is never replaced by one that was read earlier. Removed rows leave empty
+ * slots until there are more of them than live rows, then the snapshot is compacted.
+ * <p>
+ * Style and username changes touch many rows, so they only {@link #requestRebuild() request} a
+ * full rebuild, which runs in the background within {@code catalog.rebuild-delay-ms}; requests
+ * made in the meantime are coalesced into one rebuild.
+ * <p>
+ * Reads are eventually consistent with the database. A snapshot reflects every beer write that
+ * went through the repositories of this instance right away. Changes made by other instances or
+ * directly in the database are caught by {@link #sync()}: every {@code catalog.sync-interval-ms}
+ * it compares a fingerprint of the table (row count, sums of the ids and versions, and a checksum
+ * of the style names and usernames) with the snapshot and rebuilds on a mismatch. A direct edit
+ * of a beer must increment its version column, as every write of the application does.
+ * <p>
+ * Every published snapshot gets a new stamp, which is the change stamp of the whole collection.
+ * Stamps start over when the application restarts, so they carry the start time of this instance
+ * and ETags of another instance or an earlier run never match.
+ */
+@Component
+public class BeerCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(BeerCatalog.class);
+
+    // The label checksum is computed by the database, so the fingerprint of sync() sums the same values.
+    private static final String SELECT_ROWS = "select b.id, b.name, b.abv, s.id, s.name, u.id, u.username, b.version,"
+            + " function('crc32', concat(s.name, '/', coalesce(u.username, '')))"
+            + " from Beer b join b.style s left join b.createdBy u";
+    private static final String FINGERPRINT_SQL = "select count(*), coalesce(sum(b.beer_id), 0), coalesce(sum(b.version), 0),"
+            + " coalesce(sum(crc32(concat(s.name, '/', coalesce(u.username, '')))), 0)"
+            + " from beers b join styles s on s.style_id = b.style_id left join users u on u.user_id = b.creator_id";
+    private static final int MIN_COMPACTION_SLOTS = 1024;
+
+    private final SessionFactory sessionFactory;
+    private final BeerNameIndex nameIndex;
+    // Not a monitor: a virtual thread blocked on the database inside synchronized would pin its carrier.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    // Guarded by writeLock: the stamp of the last published snapshot, and the beers refreshed
+    // while a rebuild reads the database (null when no rebuild runs).
+    private long lastStamp;
+    private Set<Integer> refreshedDuringRebuild;
+    // Guarded by writeLock: every refresh takes a ticket before reading the database, and a row is
+    // only applied if no later ticket has been applied for it. Cleared when no refresh is running.
+    private long lastTicket;
+    private int refreshesRunning;
+    private final Map<Integer, Long> appliedTickets = new HashMap<>();
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public BeerCatalog(SessionFactory sessionFactory, BeerNameIndex nameIndex) {
+        this.sessionFactory = sessionFactory;
+        this.nameIndex = nameIndex;
+    }
+
+    /**
+     * Reads the whole catalog and publishes it. Beer writes are not blocked while the database is
+     * read; those made in the meantime are re-applied on top of the new snapshot.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            writeLock.lock();
+            try {
+                refreshedDuringRebuild = new HashSet<>();
+            } finally {
+                writeLock.unlock();
+            }
+
+            int[] replay;
+            nameIndex.startBuild();
+            try {
+                List<Object[]> result;
+                try (StatelessSession session = sessionFactory.openStatelessSession()) {
+                    result = session.createQuery(SELECT_ROWS, Object[].class)
+                            .setFetchSize(1000)
+                            .list();
+                }
+                BeerSummary[] rows = toRows(result);
+                Snapshot built = Snapshot.build(rows, versionsOf(result), labelsOf(result), 0);
+
+                writeLock.lock();
+                try {
+                    snapshot = built.withStamp(++lastStamp);
+                    replay = refreshedDuringRebuild.stream().mapToInt(Integer::intValue).toArray();
+                } finally {
+                    writeLock.unlock();
+                }
+                nameIndex.build(Arrays.stream(rows).map(row -> Map.entry(row.getId(), row.getName())).iterator());
+            } catch (RuntimeException e) {
+                nameIndex.cancelBuild();
+                throw e;
+            } finally {
+                writeLock.lock();
+                try {
+                    refreshedDuringRebuild = null;
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+
+            if (replay.length > 0) {
+                refresh(replay);
+            }
+            logger.info("Beer catalog snapshot built: {} beers", snapshot.size());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Asks for a {@link #rebuild()} in the background, for changes that are not worth patching
+     * row by row (a renamed style or user).
+     */
+    public void requestRebuild() {
+        rebuildRequested.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.rebuild-delay-ms:500}")
+    public void rebuildIfRequested() {
+        if (rebuildRequested.getAndSet(false)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Re-reads the given beers and publishes a snapshot with their rows replaced, added or, for
+     * beers that no longer exist, removed.
+     */
+    public void refresh(int... ids) {
+        if (ids.length == 0) {
+            return;
+        }
+        long ticket;
+        writeLock.lock();
+        try {
+            if (refreshedDuringRebuild != null) {
+                Arrays.stream(ids).forEach(refreshedDuringRebuild::add);
+            }
+            if (snapshot == null) {
+                // Not built yet, the startup rebuild reads the latest state anyway.
+                return;
+            }
+            ticket = ++lastTicket;
+            refreshesRunning++;
+        } finally {
+            writeLock.unlock();
+        }
+
+        List<Object[]> changed = null;
+        try {
+            try (StatelessSession session = sessionFactory.openStatelessSession()) {
+                changed = session.createQuery(SELECT_ROWS + " where b.id in (:ids)", Object[].class)
+                        .setParameterList("ids", Arrays.stream(ids).boxed().toList())
+                        .list();
+            }
+        } finally {
+            writeLock.lock();
+            try {
+                refreshesRunning--;
+                if (changed != null) {
+                    apply(ids, changed, ticket);
+                }
+                if (refreshesRunning == 0) {
+                    appliedTickets.clear();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Patches the snapshot with the rows read for the given ticket, leaving out the beers a later
+     * ticket has already been applied for: that read started later, so it is at least as recent.
+     */
+    private void apply(int[] ids, List<Object[]> changed, long ticket) {
+        int[] current = Arrays.stream(ids)
+                .filter(id -> appliedTickets.getOrDefault(id, 0L) < ticket)
+                .toArray();
+        Set<Integer> currentIds = new HashSet<>();
+        for (int id : current) {
+            currentIds.add(id);
+            appliedTickets.put(id, ticket);
+        }
+        List<Object[]> rows = changed.stream()
+                .filter(row -> currentIds.contains((Integer) row[0]))
+                .toList();
+        if (current.length == 0) {
+            return;
+        }
+        BeerSummary[] patched = toRows(rows);
+        snapshot = snapshot.patch(current, patched, versionsOf(rows), labelsOf(rows), ++lastStamp);
+        for (BeerSummary row : patched) {
+            currentIds.remove(row.getId());
+            nameIndex.put(row.getId(), row.getName());
+        }
+        currentIds.forEach(nameIndex::remove);
+    }
+
+    /**
+     * Compares the snapshot with the database and requests a rebuild if they differ. The
+     * comparison is one aggregate query; nothing is loaded unless there is a difference.
+     */
+    @Scheduled(initialDelayString = "${catalog.sync-interval-ms:10000}",
+            fixedDelayString = "${catalog.sync-interval-ms:10000}")
+    public void sync() {
+        Snapshot snapshot = this.snapshot;
+        if (snapshot == null) {
+            return;
+        }
+        Object[] stored;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            stored = session.createNativeQuery(FINGERPRINT_SQL, Object[].class).getSingleResult();
+        }
+        long[] fingerprint = snapshot.fingerprint();
+        for (int i = 0; i < fingerprint.length; i++) {
+            if (((Number) stored[i]).longValue() != fingerprint[i]) {
+                // A write of this instance committed after the query and before the snapshot was
+                // read can cause a needless rebuild, but never a missed one.
+                logger.info("Beer catalog differs from the database, rebuilding");
+                requestRebuild();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Whether any beer in the snapshot was created by the given user.
+     */
+    public boolean hasCreator(int userId) {
+        Snapshot snapshot = this.snapshot;
+        if (snapshot == null) {
+            return false;
+        }
+        for (int slot : snapshot.byId) {
+            if (Objects.equals(snapshot.rows[slot].getCreatorId(), userId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether any beer in the snapshot has the given style.
+     */
+    public boolean hasStyle(int styleId) {
+        Snapshot snapshot = this.snapshot;
+        if (snapshot == null || !snapshot.styleIndexes.containsKey(styleId)) {
+            return false;
+        }
+        int style = snapshot.styleIndexes.get(styleId);
+        for (int slot : snapshot.byId) {
+            if (snapshot.styles[slot] == style) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the beers matching the filter in the requested order, or null if the snapshot has
+     * not been built yet.
+     */
+    public List<BeerSummary> find(FilterOptions filterOptions) {
+        Snapshot snapshot = this.snapshot;
+        if (snapshot == null) {
+            return null;
+        }
+
+        int[] nameIds = filterOptions.getName() == null ? null : nameIndex.search(filterOptions.getName());
+        return snapshot.find(filterOptions, nameIds);
+    }
+
+    /**
+     * Returns the beer with the given id from the snapshot, or null if it is not there or the
+     * snapshot has not been built yet.
+     */
+    public BeerSummary get(int id) {
+        Snapshot snapshot = this.snapshot;
+        int row = snapshot == null ? -1 : snapshot.indexOf(id);
+        return row < 0 ? null : snapshot.rows[row];
+    }
+
+    /**
+     * Returns the change stamp of the whole catalog, or null if the snapshot has not been built yet.
+     */
+    public ChangeStamp getStamp() {
+        Snapshot snapshot = this.snapshot;
+        return snapshot == null ? null
+                : new ChangeStamp("beers." + epoch + "." + snapshot.stamp, snapshot.publishedAt);
+    }
+
+    private static BeerSummary[] toRows(List<Object[]> result) {
+        BeerSummary[] rows = new BeerSummary[result.size()];
+        for (int i = 0; i < rows.length; i++) {
+            Object[] row = result.get(i);
+            rows[i] = new BeerSummary((Integer) row[0], (String) row[1], (Double) row[2],
+                    (Integer) row[3], (String) row[4], (Integer) row[5], (String) row[6]);
+        }
+        return rows;
+    }
+
+    private static long[] versionsOf(List<Object[]> result) {
+        return result.stream().mapToLong(row -> (Long) row[7]).toArray();
+    }
+
+    private static long[] labelsOf(List<Object[]> result) {
+        return result.stream().mapToLong(row -> ((Number) row[8]).longValue()).toArray();
+    }
+
+    /**
+     * Rows live in slots; a removed row leaves a null slot, which no permutation points at.
+     * Package-private so that tests can build and patch snapshots without a database.
+     */
+    static class Snapshot {
+        private final BeerSummary[] rows;
+        private final long[] versions;
+        private final long[] labels;
+        private final String[] names;
+        private final CollationKey[] nameKeys;
+        private final double[] abv;
+        private final int[] styles;
+        private final String[] styleNames;
+        private final Map<Integer, Integer> styleIndexes;
+        private final int[] byId;
+        private final int[] byName;
+        private final int[] byAbv;
+        private final long stamp;
+        private final long publishedAt = System.currentTimeMillis();
+
+        private Snapshot(BeerSummary[] rows, long[] versions, long[] labels, String[] names,
+                         CollationKey[] nameKeys, double[] abv, int[] styles, String[] styleNames, Map<Integer, Integer> styleIndexes,
+                         int[] byId, int[] byName, int[] byAbv, long stamp) {
+            this.rows = rows;
+            this.versions = versions;
+            this.labels = labels;
+            this.names = names;
+            this.nameKeys = nameKeys;
+            this.abv = abv;
+            this.styles = styles;
+            this.styleNames = styleNames;
+            this.styleIndexes = styleIndexes;
+            this.byId = byId;
+            this.byName = byName;
+            this.byAbv = byAbv;
+            this.stamp = stamp;
+        }
+
+        static Snapshot build(BeerSummary[] rows, long[] versions, long[] labels, long stamp) {
+            String[] names = new String[rows.length];
+            CollationKey[] nameKeys = new CollationKey[rows.length];
+            double[] abv = new double[rows.length];
+            int[] styles = new int[rows.length];
+
+            // Styles are few, so each row stores an index into a small dictionary.
+            Map<Integer, Integer> styleIndexes = new HashMap<>();
+            List<String> styleNames = new ArrayList<>();
+            Collator collator = nameCollator();
+            for (int i = 0; i < rows.length; i++) {
+                names[i] = BeerNameIndex.fold(rows[i].getName());
+                nameKeys[i] = collator.getCollationKey(rows[i].getName());
+                abv[i] = rows[i].getAbv();
+                int row = i;
+                styles[i] = styleIndexes.computeIfAbsent(rows[i].getStyleId(), styleId -> {
+                    styleNames.add(BeerNameIndex.fold(rows[row].getStyleName()));
+                    return styleNames.size() - 1;
+                });
+            }
+
+            int[] slots = new int[rows.length];
+            Arrays.setAll(slots, i -> i);
+            return new Snapshot(rows, versions, labels, names, nameKeys, abv, styles,
+                    styleNames.toArray(String[]::new), styleIndexes, sort(slots, byId(rows)),
+                    sort(slots, byName(rows, nameKeys)), sort(slots, byAbv(rows, abv)), stamp);
+        }
+
+        private Snapshot withStamp(long stamp) {
+            return new Snapshot(rows, versions, labels, names, nameKeys, abv, styles, styleNames, styleIndexes,
+                    byId, byName, byAbv, stamp);
+        }
+
+        /**
+         * Returns the rows matching the filter in the requested order.
+         *
+         * @param nameIds beers whose name may match, as found by the {@link BeerNameIndex}, or
+         *                null to check every name
+         */
+        List<BeerSummary> find(FilterOptions filterOptions, int[] nameIds) {
+            String name = filterOptions.getName() == null ? null : BeerNameIndex.fold(filterOptions.getName());
+            double minAbv = filterOptions.getMinAbv() == null ? Double.NEGATIVE_INFINITY : filterOptions.getMinAbv();
+            double maxAbv = filterOptions.getMaxAbv() == null ? Double.POSITIVE_INFINITY : filterOptions.getMaxAbv();
+            boolean[] styleMatches = matchStyles(filterOptions.getStyleName());
+            boolean descending = filterOptions.isDescending();
+
+            int[] order;
+            int from = 0;
+            int to;
+            if (nameIds != null) {
+                // A few candidates: sorting them is cheaper than walking the whole permutation.
+                int[] candidates = new int[nameIds.length];
+                int count = 0;
+                for (int id : nameIds) {
+                    int slot = indexOf(id);
+                    if (slot >= 0) {
+                        candidates[count++] = slot;
+                    }
+                }
+                order = sort(Arrays.copyOf(candidates, count), switch (filterOptions.getSortBy()) {
+                    case FilterOptions.SORT_BY_ID -> byId(rows);
+                    case FilterOptions.SORT_BY_ABV -> byAbv(rows, abv);
+                    default -> byName(rows, nameKeys);
+                });
+                to = order.length;
+            } else {
+                order = switch (filterOptions.getSortBy()) {
+                    case FilterOptions.SORT_BY_ID -> byId;
+                    case FilterOptions.SORT_BY_ABV -> byAbv;
+                    default -> byName;
+                };
+                to = order.length;
+                if (order == byAbv) {
+                    // Sorted by ABV, so the range is a contiguous run of the permutation.
+                    from = firstAbvAtLeast(minAbv, false);
+                    to = firstAbvAtLeast(maxAbv, true);
+                }
+            }
+
+            List<BeerSummary> result = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                int row = order[descending ? to - 1 - (i - from) : i];
+                if (abv[row] < minAbv || abv[row] > maxAbv) {
+                    continue;
+                }
+                if (styleMatches != null && !styleMatches[styles[row]]) {
+                    continue;
+                }
+                if (name != null && !names[row].contains(name)) {
+                    continue;
+                }
+                result.add(rows[row]);
+            }
+            return result;
+        }
+
+        /**
+         * Returns a copy with the given beers replaced or added, and the other requested ids
+         * removed. Only the changed slots are sorted; the rest of each permutation keeps its order.
+         */
+        Snapshot patch(int[] ids, BeerSummary[] changed, long[] changedVersions, long[] changedLabels,
+                               long stamp) {
+            Map<Integer, Integer> slotsById = new HashMap<>();
+            int added = 0;
+            for (int id : ids) {
+                int slot = indexOf(id);
+                if (slot >= 0) {
+                    slotsById.put(id, slot);
+                }
+            }
+            for (BeerSummary row : changed) {
+                if (!slotsById.containsKey(row.getId())) {
+                    slotsById.put(row.getId(), rows.length + added++);
+                }
+            }
+
+            int length = rows.length + added;
+            BeerSummary[] rows = Arrays.copyOf(this.rows, length);
+            long[] versions = Arrays.copyOf(this.versions, length);
+            long[] labels = Arrays.copyOf(this.labels, length);
+            String[] names = Arrays.copyOf(this.names, length);
+            CollationKey[] nameKeys = Arrays.copyOf(this.nameKeys, length);
+            double[] abv = Arrays.copyOf(this.abv, length);
+            int[] styles = Arrays.copyOf(this.styles, length);
+            String[] styleNames = this.styleNames;
+            Map<Integer, Integer> styleIndexes = this.styleIndexes;
+
+            // Every slot in the map is either removed or rewritten; start from removed.
+            boolean[] touched = new boolean[length];
+            for (int slot : slotsById.values()) {
+                touched[slot] = true;
+                rows[slot] = null;
+                names[slot] = null;
+                nameKeys[slot] = null;
+            }
+            Collator collator = nameCollator();
+            int[] live = new int[changed.length];
+            for (int i = 0; i < changed.length; i++) {
+                BeerSummary row = changed[i];
+                int slot = slotsById.get(row.getId());
+                rows[slot] = row;
+                versions[slot] = changedVersions[i];
+                labels[slot] = changedLabels[i];
+                names[slot] = BeerNameIndex.fold(row.getName());
+                nameKeys[slot] = collator.getCollationKey(row.getName());
+                abv[slot] = row.getAbv();
+                if (!styleIndexes.containsKey(row.getStyleId())) {
+                    styleIndexes = new HashMap<>(styleIndexes);
+                    styleIndexes.put(row.getStyleId(), styleNames.length);
+                    styleNames = Arrays.copyOf(styleNames, styleNames.length + 1);
+                    styleNames[styleNames.length - 1] = BeerNameIndex.fold(row.getStyleName());
+                }
+                styles[slot] = styleIndexes.get(row.getStyleId());
+                live[i] = slot;
+            }
+
+            int size = byId.length - (slotsById.size() - added) + changed.length;
+            if (length - size > MIN_COMPACTION_SLOTS && length - size > size) {
+                return compact(rows, versions, labels, stamp);
+            }
+            return new Snapshot(rows, versions, labels, names, nameKeys, abv, styles, styleNames, styleIndexes,
+                    merge(byId, touched, sort(live, byId(rows)), byId(rows)),
+                    merge(byName, touched, sort(live, byName(rows, nameKeys)), byName(rows, nameKeys)),
+                    merge(byAbv, touched, sort(live, byAbv(rows, abv)), byAbv(rows, abv)),
+                    stamp);
+        }
+
+        private Snapshot compact(BeerSummary[] rows, long[] versions, long[] labels, long stamp) {
+            List<Integer> live = new ArrayList<>();
+            for (int slot = 0; slot < rows.length; slot++) {
+                if (rows[slot] != null) {
+                    live.add(slot);
+                }
+            }
+            BeerSummary[] compactRows = new BeerSummary[live.size()];
+            long[] compactVersions = new long[live.size()];
+            long[] compactLabels = new long[live.size()];
+            for (int i = 0; i < compactRows.length; i++) {
+                compactRows[i] = rows[live.get(i)];
+                compactVersions[i] = versions[live.get(i)];
+                compactLabels[i] = labels[live.get(i)];
+            }
+            return build(compactRows, compactVersions, compactLabels, stamp);
+        }
+
+        int size() {
+            return byId.length;
+        }
+
+        /**
+         * Number of slots, live or removed.
+         */
+        int slots() {
+            return rows.length;
+        }
+
+        /**
+         * Row count and sums of the ids, versions and label checksums, as computed by
+         * {@link #FINGERPRINT_SQL}.
+         */
+        private long[] fingerprint() {
+            long[] fingerprint = {byId.length, 0, 0, 0};
+            for (int slot : byId) {
+                fingerprint[1] += rows[slot].getId();
+                fingerprint[2] += versions[slot];
+                fingerprint[3] += labels[slot];
+            }
+            return fingerprint;
+        }
+
+        private int indexOf(int id) {
+            int low = 0;
+            int high = byId.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int middleId = rows[byId[middle]].getId();
+                if (middleId < id) {
+                    low = middle + 1;
+                } else if (middleId > id) {
+                    high = middle - 1;
+                } else {
+                    return byId[middle];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the first position in {@link #byAbv} whose ABV is at least (or, if exclusive,
+         * above) the given value.
+         */
+        private int firstAbvAtLeast(double value, boolean exclusive) {
+            int low = 0;
+            int high = byAbv.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                double middleAbv = abv[byAbv[middle]];
+                if (middleAbv < value || (exclusive && middleAbv == value)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private boolean[] matchStyles(String styleName) {
+            if (styleName == null) {
+                return null;
+            }
+            String foldedStyleName = BeerNameIndex.fold(styleName);
+            boolean[] matches = new boolean[styleNames.length];
+            for (int i = 0; i < styleNames.length; i++) {
+                matches[i] = styleNames[i].contains(foldedStyleName);
+            }
+            return matches;
+        }
+
+        // Ties are broken by id, as in the database queries, so reversing gives the desc order.
+        private static SlotOrder byId(BeerSummary[] rows) {
+            return (a, b) -> Integer.compare(rows[a].getId(), rows[b].getId());
+        }
+
+        private static SlotOrder byName(BeerSummary[] rows, CollationKey[] nameKeys) {
+            return (a, b) -> {
+                int result = nameKeys[a].compareTo(nameKeys[b]);
+                return result != 0 ? result : Integer.compare(rows[a].getId(), rows[b].getId());
+            };
+        }
+
+        private static SlotOrder byAbv(BeerSummary[] rows, double[] abv) {
+            return (a, b) -> {
+                int result = Double.compare(abv[a], abv[b]);
+                return result != 0 ? result : Integer.compare(rows[a].getId(), rows[b].getId());
+            };
+        }
+
+        // Collators are not thread-safe, and a rebuild builds its snapshot while refreshes patch theirs.
+        private static Collator nameCollator() {
+            Collator collator = Collator.getInstance(Locale.ROOT);
+            collator.setStrength(Collator.PRIMARY);
+            collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+            return collator;
+        }
+
+        /**
+         * Merge sort of slot numbers, on primitives so that sorting a large catalog boxes nothing.
+         */
+        private static int[] sort(int[] slots, SlotOrder order) {
+            int[] sorted = slots.clone();
+            int[] buffer = new int[sorted.length];
+            for (int width = 1; width < sorted.length; width *= 2) {
+                for (int low = 0; low < sorted.length - width; low += 2 * width) {
+                    int middle = low + width;
+                    int high = Math.min(low + 2 * width, sorted.length);
+                    int i = low;
+                    int j = middle;
+                    int k = low;
+                    while (i < middle && j < high) {
+                        buffer[k++] = order.compare(sorted[i], sorted[j]) <= 0 ? sorted[i++] : sorted[j++];
+                    }
+                    System.arraycopy(sorted, i, buffer, k, middle - i);
+                    k += middle - i;
+                    System.arraycopy(sorted, j, buffer, k, high - j);
+                    System.arraycopy(buffer, low, sorted, low, high - low);
+                }
+            }
+            return sorted;
+        }
+
+        /**
+         * Drops the touched slots from a permutation and merges the sorted live ones back in.
+         */
+        private static int[] merge(int[] permutation, boolean[] touched, int[] changed, SlotOrder order) {
+            int kept = 0;
+            for (int slot : permutation) {
+                if (!touched[slot]) {
+                    kept++;
+                }
+            }
+            int[] merged = new int[kept + changed.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (k < merged.length) {
+                if (i < permutation.length && touched[permutation[i]]) {
+                    i++;
+                } else if (j == changed.length
+                        || (i < permutation.length && order.compare(permutation[i], changed[j]) <= 0)) {
+                    merged[k++] = permutation[i++];
+                } else {
+                    merged[k++] = changed[j++];
+                }
+            }
+            return merged;
+        }
+    }
+
+    private interface SlotOrder {
+        int compare(int slot, int otherSlot);
+    }
+}
@@ -0,0 +1,142 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.models.FilterOptions;
+import com.company.web.springdemo.models.PageCursor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shape of a beer filter query, shared by the HQL ({@link BeerQueryRegistry}) and SQL
+ * ({@link BeerJdbcRepositoryImpl}) read paths, so both encode requests and build their where and
+ * order by clauses the same way.
+ * <p>
+ * A shape is the combination of present predicates (name, min ABV, max ABV, style), whether a
+ * keyset cursor is present, the sort key and the direction, packed into an int below
+ * {@link #COUNT}. Parameters are always bound in clause order: name, min ABV, max ABV, style,
+ * cursor.
+ */
+final class BeerFilterShape {
+
+    static final int HAS_NAME = 1;
+    static final int HAS_MIN_ABV = 1 << 1;
+    static final int HAS_MAX_ABV = 1 << 2;
+    static final int HAS_STYLE = 1 << 3;
+    static final int PREDICATE_COMBINATIONS = 1 << 4;
+    static final String[] SORT_KEYS = {FilterOptions.SORT_BY_ID, FilterOptions.SORT_BY_ABV, FilterOptions.SORT_BY_NAME};
+    static final int COUNT = PREDICATE_COMBINATIONS * 2 * SORT_KEYS.length * 2;
+
+    static final Syntax HQL = new Syntax("b.id", "b.name", "b.abv", "b.style.name", false);
+    static final Syntax SQL = new Syntax("b.beer_id", "b.name", "b.abv", "s.name", true);
+
+    private BeerFilterShape() {
+    }
+
+    static int of(FilterOptions filterOptions, PageCursor after) {
+        int predicates = 0;
+        if (filterOptions.getName() != null) predicates |= HAS_NAME;
+        if (filterOptions.getMinAbv() != null) predicates |= HAS_MIN_ABV;
+        if (filterOptions.getMaxAbv() != null) predicates |= HAS_MAX_ABV;
+        if (filterOptions.getStyleName() != null) predicates |= HAS_STYLE;
+
+        int sort = switch (filterOptions.getSortBy()) {
+            case FilterOptions.SORT_BY_ID -> 0;
+            case FilterOptions.SORT_BY_ABV -> 1;
+            default -> 2;
+        };
+        return of(predicates, after != null, sort, filterOptions.isDescending());
+    }
+
+    static int of(int predicates, boolean hasCursor, int sort, boolean descending) {
+        return ((predicates * 2 + (hasCursor ? 1 : 0)) * SORT_KEYS.length + sort) * 2 + (descending ? 1 : 0);
+    }
+
+    static int predicates(int shape) {
+        return shape / (2 * SORT_KEYS.length * 2);
+    }
+
+    static boolean hasCursor(int shape) {
+        return shape / (SORT_KEYS.length * 2) % 2 == 1;
+    }
+
+    static String sortKey(int shape) {
+        return SORT_KEYS[shape / 2 % SORT_KEYS.length];
+    }
+
+    static boolean isDescending(int shape) {
+        return shape % 2 == 1;
+    }
+
+    /**
+     * Returns the where and order by clauses of the shape.
+     */
+    static String clauses(int shape, Syntax syntax) {
+        int predicates = predicates(shape);
+        List<String> where = new ArrayList<>();
+
+        if ((predicates & HAS_NAME) != 0) {
+            where.add("lower(" + syntax.name + ") like " + syntax.parameter("name"));
+        }
+        if ((predicates & HAS_MIN_ABV) != 0) {
+            where.add(syntax.abv + " >= " + syntax.parameter("minAbv"));
+        }
+        if ((predicates & HAS_MAX_ABV) != 0) {
+            where.add(syntax.abv + " <= " + syntax.parameter("maxAbv"));
+        }
+        if ((predicates & HAS_STYLE) != 0) {
+            where.add("lower(" + syntax.styleName + ") like " + syntax.parameter("styleName"));
+        }
+
+        // --- Seek predicate (keyset pagination), the id breaks ties between equal sort values ---
+        String sortExpr = switch (sortKey(shape)) {
+            case FilterOptions.SORT_BY_ID -> syntax.id;
+            case FilterOptions.SORT_BY_ABV -> syntax.abv;
+            default -> syntax.name;
+        };
+        boolean descending = isDescending(shape);
+        String cmp = descending ? "<" : ">";
+        if (hasCursor(shape)) {
+            if (sortExpr.equals(syntax.id)) {
+                where.add(syntax.id + " " + cmp + " " + syntax.parameter("afterId"));
+            } else {
+                where.add("(" + sortExpr + " " + cmp + " " + syntax.parameter("afterValue")
+                        + " or (" + sortExpr + " = " + syntax.parameter("afterValue")
+                        + " and " + syntax.id + " " + cmp + " " + syntax.parameter("afterId") + "))");
+            }
+        }
+
+        StringBuilder clauses = new StringBuilder();
+        if (!where.isEmpty()) {
+            clauses.append(" where ").append(String.join(" and ", where));
+        }
+        String direction = descending ? " desc" : " asc";
+        clauses.append(" order by ").append(sortExpr).append(direction);
+        if (!sortExpr.equals(syntax.id)) {
+            clauses.append(", ").append(syntax.id).append(direction);
+        }
+        return clauses.toString();
+    }
+
+    /**
+     * Column names and parameter style of one query language.
+     */
+    static final class Syntax {
+        private final String id;
+        private final String name;
+        private final String abv;
+        private final String styleName;
+        private final boolean positional;
+
+        private Syntax(String id, String name, String abv, String styleName, boolean positional) {
+            this.id = id;
+            this.name = name;
+            this.abv = abv;
+            this.styleName = styleName;
+            this.positional = positional;
+        }
+
+        private String parameter(String name) {
+            return positional ? "?" : ":" + name;
+        }
+    }
+}
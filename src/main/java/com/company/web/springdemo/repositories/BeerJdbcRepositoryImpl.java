@@ -0,0 +1,218 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.exceptions.EntityNotFoundException;
+import com.company.web.springdemo.helpers.DbHelper;
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerSummary;
+import com.company.web.springdemo.models.ChangeStamp;
+import com.company.web.springdemo.models.FilterOptions;
+import com.company.web.springdemo.models.PageCursor;
+import com.company.web.springdemo.models.Style;
+import com.company.web.springdemo.models.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Read-optimized beer repository enabled with {@code beers.repository.mode=jdbc}.
+ * <p>
+ * List and lookup queries go straight to JDBC and map rows to detached Beer objects,
+ * skipping entity hydration, dirty-checking snapshots and the persistence context.
+ * Filters use the same {@link BeerFilterShape shapes} as the Hibernate path, and every shape maps
+ * to one fixed SQL string, so the driver's server-side prepared statement cache is reused across
+ * requests. Writes and streaming are delegated to the Hibernate repository.
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(name = "beers.repository.mode", havingValue = "jdbc")
+public class BeerJdbcRepositoryImpl implements BeerRepository {
+
+    private static final String SELECT_BEERS = "select b.beer_id, b.name, b.abv, s.style_id, s.name, " +
+            "u.user_id, u.username, u.first_name, u.last_name, u.email, u.is_admin " +
+            "from beers b " +
+            "join styles s on s.style_id = b.style_id " +
+            "left join users u on u.user_id = b.creator_id";
+
+    private final DbHelper dbHelper;
+    private final BeerRepositoryImpl hibernateRepository;
+    private final Map<Integer, String> sqlByShape = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BeerJdbcRepositoryImpl(DbHelper dbHelper, BeerRepositoryImpl hibernateRepository) {
+        this.dbHelper = dbHelper;
+        this.hibernateRepository = hibernateRepository;
+    }
+
+    @Override
+    public List<Beer> get(String name, Double minAbv, Double maxAbv, String styleName, String sortBy, String sortOrder) {
+        return query(new FilterOptions(name, minAbv, maxAbv, styleName, sortBy, sortOrder), null, 0);
+    }
+
+    @Override
+    public List<Beer> get(FilterOptions filterOptions, PageCursor after, int limit) {
+        return query(filterOptions, after, limit);
+    }
+
+    @Override
+    public Beer get(int id) {
+        List<Beer> result = queryByColumn("b.beer_id", id);
+        if (result.isEmpty()) {
+            throw new EntityNotFoundException("Beer", "id", String.valueOf(id));
+        }
+        return result.get(0);
+    }
+
+    @Override
+    public Beer get(String name) {
+        List<Beer> result = queryByColumn("b.name", name);
+        if (result.isEmpty()) {
+            throw new EntityNotFoundException("Beer", "name", name);
+        }
+        return result.get(0);
+    }
+
+    @Override
+    public Stream<BeerSummary> stream(FilterOptions filterOptions) {
+        return hibernateRepository.stream(filterOptions);
+    }
+
+    @Override
+    public Set<String> getExistingNames(Collection<String> names) {
+        return hibernateRepository.getExistingNames(names);
+    }
+
+    @Override
+    public ChangeStamp getStamp() {
+        return hibernateRepository.getStamp();
+    }
+
+    @Override
+    public ChangeStamp getStamp(int id) {
+        return hibernateRepository.getStamp(id);
+    }
+
+    @Override
+    public void create(Beer beer) {
+        hibernateRepository.create(beer);
+    }
+
+    @Override
+    public void create(List<Beer> beers) {
+        hibernateRepository.create(beers);
+    }
+
+    @Override
+    public void insert(List<Beer> beers) {
+        hibernateRepository.insert(beers);
+    }
+
+    @Override
+    public void afterInsert() {
+        hibernateRepository.afterInsert();
+    }
+
+    @Override
+    public boolean update(Beer beer, int requesterId, boolean admin, Long expectedVersion) {
+        return hibernateRepository.update(beer, requesterId, admin, expectedVersion);
+    }
+
+    @Override
+    public boolean delete(int id, int requesterId, boolean admin) {
+        return hibernateRepository.delete(id, requesterId, admin);
+    }
+
+    private List<Beer> query(FilterOptions filterOptions, PageCursor after, int limit) {
+        int shape = BeerFilterShape.of(filterOptions, after);
+        int key = shape * 2 + (limit > 0 ? 1 : 0);
+        String sql = sqlByShape.computeIfAbsent(key, ignored -> SELECT_BEERS
+                + BeerFilterShape.clauses(shape, BeerFilterShape.SQL)
+                + (limit > 0 ? " limit ?" : ""));
+
+        try (Connection connection = dbHelper.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (filterOptions.getName() != null) {
+                statement.setString(index++, "%" + filterOptions.getName().toLowerCase() + "%");
+            }
+            if (filterOptions.getMinAbv() != null) {
+                statement.setDouble(index++, filterOptions.getMinAbv());
+            }
+            if (filterOptions.getMaxAbv() != null) {
+                statement.setDouble(index++, filterOptions.getMaxAbv());
+            }
+            if (filterOptions.getStyleName() != null) {
+                statement.setString(index++, "%" + filterOptions.getStyleName().toLowerCase() + "%");
+            }
+            if (after != null) {
+                switch (filterOptions.getSortBy()) {
+                    case FilterOptions.SORT_BY_ID -> {
+                    }
+                    case FilterOptions.SORT_BY_ABV -> {
+                        statement.setDouble(index++, after.getAbvValue());
+                        statement.setDouble(index++, after.getAbvValue());
+                    }
+                    default -> {
+                        statement.setString(index++, after.getValue());
+                        statement.setString(index++, after.getValue());
+                    }
+                }
+                statement.setInt(index++, after.getId());
+            }
+            if (limit > 0) {
+                statement.setInt(index, limit);
+            }
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return mapBeers(resultSet);
+            }
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Beer query", sql, e);
+        }
+    }
+
+    private List<Beer> queryByColumn(String column, Object value) {
+        String sql = SELECT_BEERS + " where " + column + " = ?";
+        try (Connection connection = dbHelper.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setObject(1, value);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return mapBeers(resultSet);
+            }
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Beer lookup", sql, e);
+        }
+    }
+
+    private static List<Beer> mapBeers(ResultSet resultSet) throws SQLException {
+        List<Beer> beers = new ArrayList<>();
+        while (resultSet.next()) {
+            Beer beer = new Beer(resultSet.getInt(1), resultSet.getString(2), resultSet.getDouble(3));
+            beer.setStyle(new Style(resultSet.getInt(4), resultSet.getString(5)));
+
+            int creatorId = resultSet.getInt(6);
+            if (!resultSet.wasNull()) {
+                User creator = new User(creatorId, resultSet.getString(7), null, resultSet.getBoolean(11));
+                creator.setFirstName(resultSet.getString(8));
+                creator.setLastName(resultSet.getString(9));
+                creator.setEmail(resultSet.getString(10));
+                beer.setCreatedBy(creator);
+            }
+            beers.add(beer);
+        }
+        return beers;
+    }
+}
@@ -0,0 +1,379 @@
+package com.company.web.springdemo.repositories;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over beer names, answering substring searches of the
+ * {@link BeerCatalog} without scanning every name.
+ * <p>
+ * Every lower-cased name is split into overlapping 3-character grams; each gram keeps a sorted
+ * postings array of beer ids. A search intersects the postings of the query's grams (smallest
+ * first) and verifies the candidates against the stored names, so the result is exact for the
+ * names the index holds.
+ * <p>
+ * The index holds the names of the catalog snapshot: the catalog builds it with every rebuild and
+ * updates it with every row it patches, so it is as eventually consistent as the snapshot and is
+ * reconciled by the same sync. It is only a candidate filter for the catalog; database queries
+ * match names with like. Writes made while a build is running are recorded and replayed once the
+ * new postings are in place, so they are not lost. If the estimated size goes over
+ * {@code search.name-index.max-bytes} the index switches itself off and the catalog scans.
+ * <p>
+ * Names and queries are folded like the case- and accent-insensitive collation of the column:
+ * lower-cased with {@link Locale#ROOT} and stripped of accents, so an accented "e" matches "e" as
+ * it does in the database. Collations also equate some letters this folding keeps apart (the
+ * German sharp s and "ss", for example), so queries with any non-ASCII character left after
+ * folding are left to the catalog's scan.
+ */
+@Component
+public class BeerNameIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BeerNameIndex.class);
+
+    private static final int GRAM_LENGTH = 3;
+    private static final int MAX_RESULTS = 1000;
+    private static final int[] NO_IDS = new int[0];
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+    // Rough per-object costs on a 64-bit JVM with compressed oops
+    private static final long ARRAY_OVERHEAD_BYTES = 16;
+    private static final long MAP_ENTRY_OVERHEAD_BYTES = 64;
+    private static final long STRING_OVERHEAD_BYTES = 40;
+
+    private final long maxBytes;
+
+    private final Map<Long, int[]> postings = new HashMap<>();
+    private final Map<Integer, String> names = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Writes made while a rebuild reads the table, by beer id; a null name is a removal.
+    private final Map<Integer, String> pendingWrites = new LinkedHashMap<>();
+    private boolean building;
+    private long estimatedBytes;
+    private volatile boolean enabled;
+
+    @Autowired
+    public BeerNameIndex(@Value("${search.name-index.max-bytes:268435456}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Starts recording writes, to be replayed by the next {@link #build(Iterator)}. Called before
+     * the table is read, so a write is either in what the build reads or in the record (or both).
+     */
+    void startBuild() {
+        lock.writeLock().lock();
+        try {
+            building = true;
+            pendingWrites.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops recording writes after a failed read; the index keeps its current postings.
+     */
+    void cancelBuild() {
+        lock.writeLock().lock();
+        try {
+            building = false;
+            pendingWrites.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void build(Iterator<Map.Entry<Integer, String>> beers) {
+        Map<Long, IntArrayBuilder> builders = new HashMap<>();
+        Map<Integer, String> loadedNames = new HashMap<>();
+        long bytes = 0;
+
+        while (beers.hasNext()) {
+            Map.Entry<Integer, String> beer = beers.next();
+            String name = fold(beer.getValue());
+            loadedNames.put(beer.getKey(), name);
+            bytes += nameBytes(name);
+            for (long gram : distinctGrams(name)) {
+                IntArrayBuilder builder = builders.get(gram);
+                if (builder == null) {
+                    builder = new IntArrayBuilder();
+                    builders.put(gram, builder);
+                    bytes += ARRAY_OVERHEAD_BYTES + MAP_ENTRY_OVERHEAD_BYTES;
+                }
+                builder.add(beer.getKey());
+                bytes += Integer.BYTES;
+            }
+            if (bytes > maxBytes) {
+                disable(bytes);
+                return;
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            builders.forEach((gram, builder) -> postings.put(gram, builder.toSortedArray()));
+            names.clear();
+            names.putAll(loadedNames);
+            estimatedBytes = bytes;
+            enabled = true;
+            pendingWrites.forEach((id, name) -> {
+                if (name == null) {
+                    removeInternal(id);
+                } else {
+                    putInternal(id, name);
+                }
+            });
+            pendingWrites.clear();
+            building = false;
+            if (estimatedBytes > maxBytes) {
+                disable(estimatedBytes);
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Beer name index built: {} names, {} grams, ~{} KB", loadedNames.size(), builders.size(), bytes / 1024);
+    }
+
+    public void put(int id, String name) {
+        lock.writeLock().lock();
+        try {
+            String foldedName = fold(name);
+            if (building) {
+                pendingWrites.remove(id);
+                pendingWrites.put(id, foldedName);
+            }
+            if (!enabled) {
+                return;
+            }
+            putInternal(id, foldedName);
+            if (estimatedBytes > maxBytes) {
+                disable(estimatedBytes);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                pendingWrites.remove(id);
+                pendingWrites.put(id, null);
+            }
+            if (enabled) {
+                removeInternal(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the sorted ids of all beers whose name contains the query (case-insensitive),
+     * or null when the index cannot answer: it is disabled, the query is shorter than a gram,
+     * or too many beers match for an id list to beat a scan.
+     */
+    public int[] search(String query) {
+        if (!enabled || query == null || query.length() < GRAM_LENGTH) {
+            return null;
+        }
+        String foldedQuery = fold(query);
+        if (foldedQuery.length() < GRAM_LENGTH || !isAscii(foldedQuery)) {
+            return null;
+        }
+        long[] grams = distinctGrams(foldedQuery);
+
+        lock.readLock().lock();
+        try {
+            int[][] lists = new int[grams.length][];
+            for (int i = 0; i < grams.length; i++) {
+                lists[i] = postings.get(grams[i]);
+                if (lists[i] == null) {
+                    return NO_IDS;
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+
+            int[] candidates = lists[0];
+            for (int i = 1; i < lists.length && candidates.length > 0; i++) {
+                candidates = intersect(candidates, lists[i]);
+            }
+
+            // Grams can match out of order ("abcab" contains every gram of "bcabc"), so verify.
+            int[] result = new int[Math.min(candidates.length, MAX_RESULTS + 1)];
+            int count = 0;
+            for (int id : candidates) {
+                if (names.get(id).contains(foldedQuery)) {
+                    if (count == result.length) {
+                        return null;
+                    }
+                    result[count++] = id;
+                }
+            }
+            return count > MAX_RESULTS ? null : Arrays.copyOf(result, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    private void putInternal(int id, String foldedName) {
+        removeInternal(id);
+        names.put(id, foldedName);
+        estimatedBytes += nameBytes(foldedName);
+        for (long gram : distinctGrams(foldedName)) {
+            int[] ids = postings.get(gram);
+            if (ids == null) {
+                postings.put(gram, new int[]{id});
+                estimatedBytes += ARRAY_OVERHEAD_BYTES + MAP_ENTRY_OVERHEAD_BYTES + Integer.BYTES;
+            } else {
+                postings.put(gram, insert(ids, id));
+                estimatedBytes += Integer.BYTES;
+            }
+        }
+    }
+
+    private void removeInternal(int id) {
+        String oldName = names.remove(id);
+        if (oldName == null) {
+            return;
+        }
+        estimatedBytes -= nameBytes(oldName);
+        for (long gram : distinctGrams(oldName)) {
+            int[] ids = postings.get(gram);
+            int position = ids == null ? -1 : Arrays.binarySearch(ids, id);
+            if (position < 0) {
+                continue;
+            }
+            if (ids.length == 1) {
+                postings.remove(gram);
+                estimatedBytes -= ARRAY_OVERHEAD_BYTES + MAP_ENTRY_OVERHEAD_BYTES + Integer.BYTES;
+            } else {
+                int[] copy = new int[ids.length - 1];
+                System.arraycopy(ids, 0, copy, 0, position);
+                System.arraycopy(ids, position + 1, copy, position, ids.length - position - 1);
+                postings.put(gram, copy);
+                estimatedBytes -= Integer.BYTES;
+            }
+        }
+    }
+
+    private void disable(long bytes) {
+        lock.writeLock().lock();
+        try {
+            enabled = false;
+            building = false;
+            pendingWrites.clear();
+            postings.clear();
+            names.clear();
+            estimatedBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.warn("Beer name index disabled: ~{} bytes needed, budget is {} bytes", bytes, maxBytes);
+    }
+
+    static String fold(String text) {
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        if (isAscii(lowerCase)) {
+            return lowerCase;
+        }
+        return ACCENTS.matcher(Normalizer.normalize(lowerCase, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 127) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long nameBytes(String name) {
+        return STRING_OVERHEAD_BYTES + MAP_ENTRY_OVERHEAD_BYTES + 2L * name.length();
+    }
+
+    static long[] distinctGrams(String text) {
+        if (text.length() < GRAM_LENGTH) {
+            return new long[0];
+        }
+        long[] grams = new long[text.length() - GRAM_LENGTH + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = (long) text.charAt(i) << 32 | (long) text.charAt(i + 1) << 16 | text.charAt(i + 2);
+        }
+        return Arrays.stream(grams).distinct().toArray();
+    }
+
+    private static int[] insert(int[] ids, int id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return ids;
+        }
+        position = -position - 1;
+        int[] copy = new int[ids.length + 1];
+        System.arraycopy(ids, 0, copy, 0, position);
+        copy[position] = id;
+        System.arraycopy(ids, position, copy, position + 1, ids.length - position);
+        return copy;
+    }
+
+    private static int[] intersect(int[] left, int[] right) {
+        int[] result = new int[Math.min(left.length, right.length)];
+        int i = 0, j = 0, count = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static class IntArrayBuilder {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toSortedArray() {
+            int[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.FilterOptions;
+import com.company.web.springdemo.models.PageCursor;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Named queries for every {@link BeerFilterShape shape} of the beer filter, registered once at startup.
+ * <p>
+ * Each shape maps to an array slot, so a request resolves its query name with a few arithmetic
+ * operations and no string building; the HQL is parsed and validated once, when the application
+ * starts.
+ */
+@Component
+public class BeerQueryRegistry {
+
+    private static final String ENTITY_SELECT = "select b from Beer b";
+    private static final String SUMMARY_SELECT = "select b.id, b.name, b.abv, s.id, s.name, u.id, u.username"
+            + " from Beer b join b.style s left join b.createdBy u";
+
+    private final String[] entityQueries = new String[BeerFilterShape.COUNT];
+    private final String[] summaryQueries = new String[BeerFilterShape.COUNT];
+
+    @Autowired
+    public BeerQueryRegistry(SessionFactory sessionFactory) {
+        try (Session session = sessionFactory.openSession()) {
+            for (int predicates = 0; predicates < BeerFilterShape.PREDICATE_COMBINATIONS; predicates++) {
+                for (int sort = 0; sort < BeerFilterShape.SORT_KEYS.length; sort++) {
+                    for (int desc = 0; desc < 2; desc++) {
+                        for (int cursor = 0; cursor < 2; cursor++) {
+                            int shape = BeerFilterShape.of(predicates, cursor == 1, sort, desc == 1);
+                            String name = "Beer.filter." + shape;
+                            String hql = ENTITY_SELECT + BeerFilterShape.clauses(shape, BeerFilterShape.HQL);
+                            sessionFactory.addNamedQuery(name, session.createQuery(hql, Beer.class));
+                            entityQueries[shape] = name;
+                        }
+
+                        // Streaming always reads the whole result, so it never has a cursor.
+                        int shape = BeerFilterShape.of(predicates, false, sort, desc == 1);
+                        String name = "Beer.filterSummary." + shape;
+                        String hql = SUMMARY_SELECT + BeerFilterShape.clauses(shape, BeerFilterShape.HQL);
+                        sessionFactory.addNamedQuery(name, session.createQuery(hql, Object[].class));
+                        summaryQueries[shape] = name;
+                    }
+                }
+            }
+        }
+    }
+
+    public Query<Beer> createEntityQuery(Session session, FilterOptions filterOptions, PageCursor after) {
+        Query<Beer> query = session.createNamedQuery(entityQueries[BeerFilterShape.of(filterOptions, after)], Beer.class);
+        bind(query, filterOptions, after);
+        return query;
+    }
+
+    public Query<Object[]> createSummaryQuery(StatelessSession session, FilterOptions filterOptions) {
+        Query<Object[]> query = session.createNamedQuery(summaryQueries[BeerFilterShape.of(filterOptions, null)], Object[].class);
+        bind(query, filterOptions, null);
+        return query;
+    }
+
+    private static void bind(Query<?> query, FilterOptions filterOptions, PageCursor after) {
+        if (filterOptions.getName() != null) {
+            query.setParameter("name", "%" + filterOptions.getName().toLowerCase() + "%");
+        }
+        if (filterOptions.getMinAbv() != null) {
+            query.setParameter("minAbv", filterOptions.getMinAbv());
+        }
+        if (filterOptions.getMaxAbv() != null) {
+            query.setParameter("maxAbv", filterOptions.getMaxAbv());
+        }
+        if (filterOptions.getStyleName() != null) {
+            query.setParameter("styleName", "%" + filterOptions.getStyleName().toLowerCase() + "%");
+        }
+        if (after != null) {
+            if (filterOptions.getSortBy().equals(FilterOptions.SORT_BY_ABV)) {
+                query.setParameter("afterValue", after.getAbvValue());
+            } else if (filterOptions.getSortBy().equals(FilterOptions.SORT_BY_NAME)) {
+                query.setParameter("afterValue", after.getValue());
+            }
+            query.setParameter("afterId", after.getId());
+        }
+    }
+}
@@ -1,21 +1,93 @@
 package com.company.web.springdemo.repositories;
 
 import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerSummary;
+import com.company.web.springdemo.models.ChangeStamp;
+import com.company.web.springdemo.models.FilterOptions;
+import com.company.web.springdemo.models.PageCursor;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface BeerRepository {
 
     List<Beer> get(String name, Double minAbv, Double maxAbv, String styleName, String sortBy, String sortOrder);
 
+    /**
+     * Returns at most {@code limit} beers matching the filter that come strictly after
+     * the given cursor in the requested sort order, or the first page if {@code after} is null.
+     */
+    List<Beer> get(FilterOptions filterOptions, PageCursor after, int limit);
+
+    /**
+     * Scrolls over all beers matching the filter with a forward-only cursor.
+     * The stream holds a database connection and must be closed by the caller.
+     */
+    Stream<BeerSummary> stream(FilterOptions filterOptions);
+
     Beer get(int id);
 
+    /**
+     * Returns the change stamp of the whole collection, computed by the database from the ids and
+     * the version columns of every beer, its style and its creator. One aggregate query over the
+     * beers, so it costs a scan of the table but loads no rows.
+     */
+    ChangeStamp getStamp();
+
+    /**
+     * Returns the change stamp of one beer, made from the version columns of the beer, its style
+     * and its creator, or null if there is no such beer.
+     */
+    ChangeStamp getStamp(int id);
+
     Beer get(String name);
 
+    /**
+     * Returns which of the given names are already taken, with a single query per
+     * few hundred names.
+     */
+    Set<String> getExistingNames(Collection<String> names);
+
     void create(Beer beer);
 
-    void update(Beer beer);
+    /**
+     * Inserts all beers as JDBC batches in a single transaction and sets their generated ids.
+     * Either every beer is inserted or none is.
+     */
+    void create(List<Beer> beers);
+
+    /**
+     * Inserts all beers in a single transaction through a stateless session: nothing is kept
+     * in a persistence context or put into the second-level cache, so memory does not grow
+     * with the number of calls. Meant for bulk imports: the name index and the catalog are not
+     * updated, call {@link #afterInsert()} once the import is done.
+     */
+    void insert(List<Beer> beers);
+
+    /**
+     * Rebuilds the catalog and its name index once, so that they include the beers added with
+     * {@link #insert(List)}.
+     */
+    void afterInsert();
+
+    /**
+     * Updates the beer with a single statement if the requester created it or is an admin and,
+     * when {@code expectedVersion} is not null, the beer is still at that version.
+     *
+     * @return false if the beer exists but the requester may not modify it
+     * @throws com.company.web.springdemo.exceptions.EntityNotFoundException if there is no such beer
+     * @throws com.company.web.springdemo.exceptions.EntityModifiedException if the version did not match
+     */
+    boolean update(Beer beer, int requesterId, boolean admin, Long expectedVersion);
 
-    void delete(int id);
+    /**
+     * Deletes the beer with a single statement if the requester created it or is an admin.
+     *
+     * @return false if the beer exists but the requester may not delete it
+     * @throws com.company.web.springdemo.exceptions.EntityNotFoundException if there is no such beer
+     */
+    boolean delete(int id, int requesterId, boolean admin);
 
 }
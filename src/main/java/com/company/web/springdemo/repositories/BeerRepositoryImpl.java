@@ -1,12 +1,18 @@
 package com.company.web.springdemo.repositories;
 
+import com.company.web.springdemo.exceptions.EntityDuplicateException;
+import com.company.web.springdemo.exceptions.EntityModifiedException;
 import com.company.web.springdemo.exceptions.EntityNotFoundException;
 import com.company.web.springdemo.helpers.DbHelper;
 import com.company.web.springdemo.models.Beer;
-import com.company.web.springdemo.models.Style;
+import com.company.web.springdemo.models.BeerSummary;
+import com.company.web.springdemo.models.ChangeStamp;
+import com.company.web.springdemo.models.FilterOptions;
+import com.company.web.springdemo.models.PageCursor;
 import com.company.web.springdemo.models.User;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,75 +21,94 @@ import org.springframework.stereotype.Repository;
 import java.sql.*;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 public class BeerRepositoryImpl implements BeerRepository {
 
+    private static final String WISHLIST_CACHE_ROLE = User.class.getName() + ".wishlist";
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String FETCH_GRAPH_HINT = "jakarta.persistence.fetchgraph";
+    private static final int NAME_LOOKUP_CHUNK_SIZE = 500;
+    // Ownership is part of the predicate, so a write the requester may not make matches no row.
+    private static final String UPDATE_SQL = "update beers set name = ?, abv = ?, style_id = coalesce(?, style_id), "
+            + "version = version + 1 where beer_id = ? and (creator_id = ? or ?)";
+    private static final String VERSION_PREDICATE = " and version = ?";
+    private static final String DELETE_SQL = "delete from beers where beer_id = ? and (creator_id = ? or ?)";
+    private static final String PROBE_SQL = "select creator_id from beers where beer_id = ?";
+    // Count and id sum change with membership, the checksum with any version of a beer, its style or creator.
+    private static final String COLLECTION_STAMP_SQL = "select count(*), coalesce(sum(b.beer_id), 0),"
+            + " coalesce(sum(crc32(concat_ws('.', b.beer_id, b.version, s.version, coalesce(u.version, -1)))), 0)"
+            + " from beers b join styles s on s.style_id = b.style_id left join users u on u.user_id = b.creator_id";
+    private static final String STAMP_SQL = "select b.version, s.version, u.version from beers b"
+            + " join styles s on s.style_id = b.style_id left join users u on u.user_id = b.creator_id"
+            + " where b.beer_id = :id";
+
     private final SessionFactory sessionFactory;
+    private final BeerQueryRegistry queryRegistry;
+    private final BeerCatalog catalog;
+    private final WishListLeaderboard leaderboard;
 
     @Autowired
-    public BeerRepositoryImpl(SessionFactory sessionFactory) {
+    public BeerRepositoryImpl(SessionFactory sessionFactory,
+                              BeerQueryRegistry queryRegistry,
+                              BeerCatalog catalog,
+                              WishListLeaderboard leaderboard) {
         this.sessionFactory = sessionFactory;
+        this.queryRegistry = queryRegistry;
+        this.catalog = catalog;
+        this.leaderboard = leaderboard;
     }
 
     @Override
     public List<Beer> get(String name, Double minAbv, Double maxAbv, String styleName, String sortBy, String sortOrder) {
+        FilterOptions filterOptions = new FilterOptions(name, minAbv, maxAbv, styleName, sortBy, sortOrder);
         try (Session session = sessionFactory.openSession()) {
+            return createFilterQuery(session, filterOptions, null).list();
+        }
+    }
 
-            // Normalize ABV bounds if swapped
-            if (minAbv != null && maxAbv != null && minAbv > maxAbv) {
-                double t = minAbv; minAbv = maxAbv; maxAbv = t;
-            }
-
-            StringBuilder hql = new StringBuilder("select b from Beer b");
-            List<String> where = new ArrayList<>();
-            Map<String, Object> params = new HashMap<>();
-
-            if (name != null && !name.isBlank()) {
-                where.add("lower(b.name) like :name");
-                params.put("name", "%" + name.toLowerCase() + "%");
-            }
-            if (minAbv != null) {
-                where.add("b.abv >= :minAbv");
-                params.put("minAbv", minAbv);
-            }
-            if (maxAbv != null) {
-                where.add("b.abv <= :maxAbv");
-                params.put("maxAbv", maxAbv);
-            }
-            if (styleName != null && !styleName.isBlank()) {
-                where.add("b.style.name = :styleName");
-                params.put("styleName", "%" + styleName.toLowerCase() + "%");
-            }
-
-            if (!where.isEmpty()) {
-                hql.append(" where ").append(String.join(" and ", where));
-            }
-
-            // --- Sorting (whitelist) ---
-            String sortKey = (sortBy == null || sortBy.isBlank()) ? "name" : sortBy;
-            String sortExpr = switch (sortKey) {
-                case "id"   -> "b.id";
-                case "abv"  -> "b.abv";
-                case "name" -> "b.name";
-                // add more allowed props here, e.g. case "ibu" -> "b.ibu";
-                default     -> "b.name";
-            };
-            boolean desc = sortOrder != null && sortOrder.equalsIgnoreCase("desc");
-            hql.append(" order by ").append(sortExpr).append(desc ? " desc" : " asc");
-
-            Query<Beer> query = session.createQuery(hql.toString(), Beer.class);
-            params.forEach(query::setParameter);
+    @Override
+    public List<Beer> get(FilterOptions filterOptions, PageCursor after, int limit) {
+        try (Session session = sessionFactory.openSession()) {
+            Query<Beer> query = createFilterQuery(session, filterOptions, after);
+            query.setMaxResults(limit);
+            return query.list();
+        }
+    }
 
-            return query.list(); // or query.getResultList() in newer APIs
+    @Override
+    public Stream<BeerSummary> stream(FilterOptions filterOptions) {
+        // Stateless session: rows are not kept in a persistence context, so memory stays flat.
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            Query<Object[]> query = queryRegistry.createSummaryQuery(session, filterOptions);
+            query.setFetchSize(STREAM_FETCH_SIZE);
+            return query.stream()
+                    .map(BeerRepositoryImpl::toSummary)
+                    .onClose(session::close);
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
         }
     }
 
+    private static BeerSummary toSummary(Object[] row) {
+        return new BeerSummary((Integer) row[0], (String) row[1], (Double) row[2],
+                (Integer) row[3], (String) row[4], (Integer) row[5], (String) row[6]);
+    }
+
+    private Query<Beer> createFilterQuery(Session session, FilterOptions filterOptions, PageCursor after) {
+        Query<Beer> query = queryRegistry.createEntityQuery(session, filterOptions, after);
+        query.setHint(FETCH_GRAPH_HINT, session.getEntityGraph(Beer.WITH_STYLE_AND_CREATOR));
+        return query;
+    }
 
     @Override
     public Beer get(int id) {
         try(Session session = sessionFactory.openSession()){
-            Beer beer = session.get(Beer.class, id);
+            Beer beer = session.find(Beer.class, id,
+                    Map.of(FETCH_GRAPH_HINT, session.getEntityGraph(Beer.WITH_STYLE_AND_CREATOR)));
             if (beer == null){
                 throw new EntityNotFoundException("Beer", "id", String.valueOf(id));
             }
@@ -91,6 +116,32 @@ public class BeerRepositoryImpl implements BeerRepository {
         }
     }
 
+    @Override
+    public ChangeStamp getStamp() {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Object[] result = session.createNativeQuery(COLLECTION_STAMP_SQL, Object[].class).getSingleResult();
+            return new ChangeStamp("beers." + result[0] + "." + result[1] + "." + result[2], -1);
+        }
+    }
+
+    @Override
+    public ChangeStamp getStamp(int id) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            List<Object[]> result = session.createNativeQuery(STAMP_SQL, Object[].class)
+                    .setParameter("id", id)
+                    .list();
+            if (result.isEmpty()) {
+                return null;
+            }
+            Object[] versions = result.get(0);
+            long version = ((Number) versions[0]).longValue();
+            // The beer representation includes its style and creator, so their versions count as well.
+            String creatorVersion = versions[2] == null ? "-" : versions[2].toString();
+            return new ChangeStamp("beer." + id + "." + version + "." + versions[1] + "." + creatorVersion,
+                    -1, version);
+        }
+    }
+
     @Override
     public Beer get(String name) {
         try (Session session = sessionFactory.openSession()) {
@@ -104,6 +155,21 @@ public class BeerRepositoryImpl implements BeerRepository {
         }
     }
 
+    @Override
+    public Set<String> getExistingNames(Collection<String> names) {
+        List<String> distinctNames = new ArrayList<>(new HashSet<>(names));
+        Set<String> existing = new HashSet<>();
+        try (Session session = sessionFactory.openSession()) {
+            for (int from = 0; from < distinctNames.size(); from += NAME_LOOKUP_CHUNK_SIZE) {
+                List<String> chunk = distinctNames.subList(from, Math.min(from + NAME_LOOKUP_CHUNK_SIZE, distinctNames.size()));
+                existing.addAll(session.createQuery("select b.name from Beer b where b.name in (:names)", String.class)
+                        .setParameterList("names", chunk)
+                        .list());
+            }
+        }
+        return existing;
+    }
+
     @Override
     public void create(Beer beer) {
         try(Session session = sessionFactory.openSession()){
@@ -113,47 +179,158 @@ public class BeerRepositoryImpl implements BeerRepository {
                 tx.commit();
             }catch (Exception e){
                 tx.rollback();
+                throwIfDuplicateName(e, beer.getName());
+                throw e;
             }
         }
+        catalog.refresh(beer.getId());
     }
 
     @Override
-    public void update(Beer beer) {
-        Transaction tx = null;
-        try(Session session = sessionFactory.openSession()){
-            tx = session.beginTransaction();
+    public void create(List<Beer> beers) {
+        if (beers.isEmpty()) {
+            return;
+        }
+        try (Session session = sessionFactory.openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                // Ids are assigned from the pooled sequence block, so the inserts go out as JDBC batches.
+                for (Beer beer : beers) {
+                    session.persist(beer);
+                }
+                tx.commit();
+            } catch (Exception e) {
+                tx.rollback();
+                throw e;
+            }
+        }
+
+        catalog.refresh(beers.stream().mapToInt(Beer::getId).toArray());
+    }
 
-            Beer managed = session.get(Beer.class, beer.getId());
-            if (managed == null) {
-                throw new EntityNotFoundException("Beer", "id", String.valueOf(beer.getId()));
+    @Override
+    public void insert(List<Beer> beers) {
+        if (beers.isEmpty()) {
+            return;
+        }
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            session.setJdbcBatchSize(beers.size());
+            Transaction tx = session.beginTransaction();
+            try {
+                for (Beer beer : beers) {
+                    session.insert(beer);
+                }
+                tx.commit();
+            } catch (Exception e) {
+                tx.rollback();
+                throw e;
             }
-            managed.setName(beer.getName());
-            managed.setAbv(beer.getAbv());
-            if (beer.getStyle() != null) {
-                managed.setStyle(session.getReference(Style.class, beer.getStyle().getId()));
+        }
+    }
+
+    @Override
+    public void afterInsert() {
+        catalog.rebuild();
+    }
+
+    @Override
+    public boolean update(Beer beer, int requesterId, boolean admin, Long expectedVersion) {
+        boolean updated;
+        String sql = expectedVersion == null ? UPDATE_SQL : UPDATE_SQL + VERSION_PREDICATE;
+        try (Session session = sessionFactory.openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                updated = session.doReturningWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                        statement.setString(1, beer.getName());
+                        statement.setDouble(2, beer.getAbv());
+                        statement.setObject(3, beer.getStyle() == null ? null : beer.getStyle().getId(), Types.INTEGER);
+                        statement.setInt(4, beer.getId());
+                        statement.setInt(5, requesterId);
+                        statement.setBoolean(6, admin);
+                        if (expectedVersion != null) {
+                            statement.setLong(7, expectedVersion);
+                        }
+                        // The driver reports matched rows, so an update that changes nothing still counts.
+                        if (statement.executeUpdate() > 0) {
+                            return true;
+                        }
+                    }
+                    return probe(connection, beer.getId(), requesterId, admin);
+                });
+                tx.commit();
+            } catch (Exception e) {
+                tx.rollback();
+                throwIfDuplicateName(e, beer.getName());
+                throw e;
             }
-            tx.commit();
-        }catch (Exception e){
-            if (tx != null && tx.isActive()) tx.rollback();
-            throw e;
         }
+        if (updated) {
+            sessionFactory.getCache().evictEntityData(Beer.class, beer.getId());
+            catalog.refresh(beer.getId());
+        }
+        return updated;
     }
 
     @Override
-    public void delete(int id) {
-        try(Session session = sessionFactory.openSession()){
+    public boolean delete(int id, int requesterId, boolean admin) {
+        boolean deleted;
+        try (Session session = sessionFactory.openSession()) {
             Transaction tx = session.beginTransaction();
             try {
-                Beer beer = session.get(Beer.class, id);
-                if (beer == null) {
-                    throw new EntityNotFoundException("Beer", "id", String.valueOf(id));
-                }
-                session.remove(beer);
+                deleted = session.doReturningWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(DELETE_SQL)) {
+                        statement.setInt(1, id);
+                        statement.setInt(2, requesterId);
+                        statement.setBoolean(3, admin);
+                        if (statement.executeUpdate() > 0) {
+                            return true;
+                        }
+                    }
+                    return probe(connection, id, requesterId, admin);
+                });
                 tx.commit();
-            }catch (RuntimeException e) {
+            } catch (RuntimeException e) {
                 tx.rollback();
                 throw e;
             }
         }
+        if (deleted) {
+            // Wishlist rows go with the beer (ON DELETE CASCADE); cached wishlists may still point at it.
+            sessionFactory.getCache().evictEntityData(Beer.class, id);
+            sessionFactory.getCache().evictCollectionData(WISHLIST_CACHE_ROLE);
+            catalog.refresh(id);
+            leaderboard.remove(id);
+        }
+        return deleted;
+    }
+
+    /**
+     * Finds out why a conditional write matched no row: the beer is missing, the requester may
+     * not modify it (false), or it is not at the expected version any more. Only runs when the
+     * write matched no row, so the common case stays a single statement.
+     */
+    private static boolean probe(Connection connection, int id, int requesterId, boolean admin) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(PROBE_SQL)) {
+            statement.setInt(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new EntityNotFoundException("Beer", "id", String.valueOf(id));
+                }
+                int creatorId = resultSet.getInt(1);
+                boolean isCreator = !resultSet.wasNull() && creatorId == requesterId;
+                if (!(admin || isCreator)) {
+                    return false;
+                }
+                // Allowed, so the expected version did not match or the row changed concurrently.
+                throw new EntityModifiedException("Beer", id);
+            }
+        }
+    }
+
+    private static void throwIfDuplicateName(Exception e, String name) {
+        if (UniqueKeys.BEER_NAME.equals(UniqueKeys.violatedKey(e))) {
+            throw new EntityDuplicateException("Beer", "name", name);
+        }
     }
 }
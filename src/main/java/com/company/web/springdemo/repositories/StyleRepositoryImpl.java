@@ -17,10 +17,12 @@ import java.util.List;
 public class StyleRepositoryImpl implements StyleRepository {
 
     private final SessionFactory sessionFactory;
+    private final BeerCatalog catalog;
 
     @Autowired
-    public StyleRepositoryImpl(SessionFactory sessionFactory) {
+    public StyleRepositoryImpl(SessionFactory sessionFactory, BeerCatalog catalog) {
         this.sessionFactory = sessionFactory;
+        this.catalog = catalog;
     }
 
     @Override
@@ -44,18 +46,28 @@ public class StyleRepositoryImpl implements StyleRepository {
 
     @Override
     public Style update(Style style) {
+        Style styleToUpdate;
+        boolean nameChanged;
         try(Session session = sessionFactory.openSession()){
             Transaction tx = session.beginTransaction();
             try{
-                Style styleToUpdate = get(style.getId());
+                styleToUpdate = session.get(Style.class, style.getId());
+                if (styleToUpdate == null){
+                    throw new EntityNotFoundException("Style", "id", String.valueOf(style.getId()));
+                }
+                nameChanged = !styleToUpdate.getName().equals(style.getName());
                 styleToUpdate.setName(style.getName());
                 tx.commit();
-                return styleToUpdate;
             } catch (Exception e) {
                 tx.rollback();
                 throw e;
             }
         }
+        // The catalog shows style names.
+        if (nameChanged) {
+            catalog.requestRebuild();
+        }
+        return styleToUpdate;
     }
 
     @Override
@@ -74,5 +86,8 @@ public class StyleRepositoryImpl implements StyleRepository {
                 throw e;
             }
         }
+        if (catalog.hasStyle(id)) {
+            catalog.requestRebuild();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.company.web.springdemo.repositories;
+
+import org.hibernate.exception.ConstraintViolationException;
+
+/**
+ * Names of the unique keys from {@code db/04_unique_names.sql}. Writes rely on these keys
+ * instead of looking for a duplicate first, and translate a violation into
+ * {@link com.company.web.springdemo.exceptions.EntityDuplicateException}.
+ */
+final class UniqueKeys {
+
+    static final String BEER_NAME = "uq_beers_name";
+    static final String USER_USERNAME = "uq_users_username";
+    static final String USER_EMAIL = "uq_users_email";
+
+    private UniqueKeys() {
+    }
+
+    /**
+     * Returns the unique key the write violated, or null if the exception was not caused by a
+     * duplicate key.
+     */
+    static String violatedKey(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                    && violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE) {
+                String constraintName = violation.getConstraintName();
+                if (constraintName == null) {
+                    return null;
+                }
+                // MariaDB may report the key qualified with the table name.
+                String key = constraintName.toLowerCase();
+                return key.substring(key.lastIndexOf('.') + 1);
+            }
+        }
+        return null;
+    }
+}
@@ -22,9 +22,56 @@ public interface UserRepository {
 
     void delete(int id);
 
-    void addBeerToWishList(User user, int beerId);
+    /**
+     * Adds the beer with a single insert into the join table. Adding a beer that is already on
+     * the wishlist is a no-op.
+     *
+     * @return whether a row was added
+     * @throws com.company.web.springdemo.exceptions.EntityNotFoundException if the user or the beer does not exist
+     */
+    boolean addBeerToWishList(int userId, int beerId);
 
-    void removeFromWishList(int userId, int beerId);
+    /**
+     * Removes the beer with a single delete from the join table. Removing a beer that is not on
+     * the wishlist is a no-op.
+     *
+     * @return whether a row was removed
+     * @throws com.company.web.springdemo.exceptions.EntityNotFoundException if the user or the beer does not exist
+     */
+    boolean removeFromWishList(int userId, int beerId);
 
-    Set<Beer> getWishList(int userId);
+    /**
+     * Replaces the wishlist with {@code beerIds}: only the difference to the stored ids is
+     * written, as batched deletes and inserts in one transaction.
+     *
+     * @return the resulting beer ids in ascending order
+     * @throws com.company.web.springdemo.exceptions.EntityNotFoundException if the user or any added beer does not exist
+     */
+    int[] replaceWishList(int userId, Set<Integer> beerIds);
+
+    /**
+     * Removes {@code remove} from and adds {@code add} to the wishlist in one transaction; ids
+     * that are already absent or present are skipped.
+     *
+     * @return the resulting beer ids in ascending order
+     * @throws com.company.web.springdemo.exceptions.EntityNotFoundException if the user or any added beer does not exist
+     */
+    int[] updateWishList(int userId, Set<Integer> add, Set<Integer> remove);
+
+    /**
+     * Returns at most {@code limit} wishlisted beers with an id greater than {@code afterBeerId},
+     * ordered by id.
+     */
+    List<Beer> getWishList(int userId, int afterBeerId, int limit);
+
+    /**
+     * Returns the ids of all wishlisted beers in ascending order, read from the join table only.
+     */
+    int[] getWishListIds(int userId);
+
+    /**
+     * Returns the change stamp of the wishlist, computed by the database from the listed beer ids
+     * and the versions of those beers, their styles and creators.
+     */
+    ChangeStamp getWishListStamp(int userId);
 }
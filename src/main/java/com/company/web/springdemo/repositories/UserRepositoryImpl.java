@@ -1,29 +1,56 @@
 package com.company.web.springdemo.repositories;
 
+import com.company.web.springdemo.exceptions.EntityDuplicateException;
 import com.company.web.springdemo.exceptions.EntityNotFoundException;
 import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.ChangeStamp;
 import com.company.web.springdemo.models.User;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.hibernate.Hibernate;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 import org.springframework.stereotype.Repository;
 
 import java.sql.*;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 
 @Repository
 public class UserRepositoryImpl implements UserRepository {
 
+    private static final String WISHLIST_CACHE_ROLE = User.class.getName() + ".wishlist";
+    // insert ignore also turns a foreign key failure into "0 rows", which the follow-up lookup explains.
+    private static final String ADD_TO_WISHLIST_SQL = "insert ignore into wishlists (user_id, beer_id) values (?, ?)";
+    // Bulk changes lock every row they depend on first, so a plain insert cannot fail or be a no-op.
+    private static final String INSERT_INTO_WISHLIST_SQL = "insert into wishlists (user_id, beer_id) values (?, ?)";
+    private static final String REMOVE_FROM_WISHLIST_SQL = "delete from wishlists where user_id = ? and beer_id = ?";
+    private static final String LOCK_USER_SQL = "select user_id from users where user_id = ? for update";
+    private static final String SELECT_WISHLIST_IDS_SQL = "select beer_id from wishlists where user_id = ?";
+    private static final String LOCK_WISHLIST_IDS_SQL = SELECT_WISHLIST_IDS_SQL + " for update";
+    private static final String WISHLIST_ENDS_SQL =
+            "select (select count(*) from users where user_id = ?), (select count(*) from beers where beer_id = ?)";
+    // Count and id sum change with membership, the checksum with any version of a listed beer, its style or creator.
+    private static final String WISHLIST_STAMP_SQL = "select count(*), coalesce(sum(w.beer_id), 0),"
+            + " coalesce(sum(crc32(concat_ws('.', w.beer_id, b.version, s.version, coalesce(u.version, -1)))), 0)"
+            + " from wishlists w join beers b on b.beer_id = w.beer_id join styles s on s.style_id = b.style_id"
+            + " left join users u on u.user_id = b.creator_id where w.user_id = :userId";
+
     private final SessionFactory sessionFactory;
+    private final BeerCatalog catalog;
+    private final WishListLeaderboard leaderboard;
 
     @Autowired
-    public UserRepositoryImpl(SessionFactory sessionFactory) {
+    public UserRepositoryImpl(SessionFactory sessionFactory,
+                              BeerCatalog catalog,
+                              WishListLeaderboard leaderboard) {
         this.sessionFactory = sessionFactory;
+        this.catalog = catalog;
+        this.leaderboard = leaderboard;
     }
 
     @Override
@@ -79,6 +106,7 @@ public class UserRepositoryImpl implements UserRepository {
                 tx.commit();
             }catch (Exception e){
                 tx.rollback();
+                throwIfDuplicate(e, user);
                 throw e;
             }
         }
@@ -86,21 +114,40 @@ public class UserRepositoryImpl implements UserRepository {
 
     @Override
     public User update(User user) {
+        User managed;
+        boolean usernameChanged;
         try (Session session = sessionFactory.openSession()) {
             Transaction tx = session.beginTransaction();
             try {
-                session.merge(user);
+                // Copy the editable fields instead of merging, which would overwrite the
+                // admin flag and replace the (unloaded) wishlist.
+                managed = session.get(User.class, user.getId());
+                if (managed == null) {
+                    throw new EntityNotFoundException("User", "id", String.valueOf(user.getId()));
+                }
+                usernameChanged = !managed.getUsername().equals(user.getUsername());
+                managed.setUsername(user.getUsername());
+                managed.setPassword(user.getPassword());
+                managed.setFirstName(user.getFirstName());
+                managed.setLastName(user.getLastName());
+                managed.setEmail(user.getEmail());
                 tx.commit();
-                return user;
             }catch (Exception e){
                 tx.rollback();
+                throwIfDuplicate(e, user);
                 throw e;
             }
         }
+        // The catalog shows creator usernames, not the other fields.
+        if (usernameChanged) {
+            catalog.requestRebuild();
+        }
+        return managed;
     }
 
     @Override
     public void delete(int id) {
+        Set<Integer> wishListIds;
         try (Session session = sessionFactory.openSession()) {
             User user = session.get(User.class, id);
             if (user == null) {
@@ -108,6 +155,9 @@ public class UserRepositoryImpl implements UserRepository {
             }
             Transaction tx = session.beginTransaction();
             try {
+                // The wishlist rows go with the user (ON DELETE CASCADE); locked so that the ids
+                // read here are exactly the rows the delete removes.
+                wishListIds = session.doReturningWork(connection -> selectIds(connection, LOCK_WISHLIST_IDS_SQL, id));
                 session.remove(user);
                 tx.commit();
             }catch (Exception e){
@@ -115,58 +165,250 @@ public class UserRepositoryImpl implements UserRepository {
                 throw e;
             }
         }
+        wishListIds.forEach(leaderboard::decrement);
+        if (catalog.hasCreator(id)) {
+            catalog.requestRebuild();
+        }
+    }
+
+    @Override
+    public boolean addBeerToWishList(int userId, int beerId) {
+        boolean added = updateWishList(ADD_TO_WISHLIST_SQL, userId, beerId);
+        if (added) {
+            leaderboard.increment(beerId);
+        }
+        return added;
     }
 
     @Override
-    public void addBeerToWishList(User user, int beerId) {
+    public boolean removeFromWishList(int userId, int beerId) {
+        boolean removed = updateWishList(REMOVE_FROM_WISHLIST_SQL, userId, beerId);
+        if (removed) {
+            leaderboard.decrement(beerId);
+        }
+        return removed;
+    }
+
+    /**
+     * Runs one statement against the join table. The user and the beer are only looked up when
+     * no row changed, to tell a no-op apart from a missing user or beer.
+     */
+    private boolean updateWishList(String sql, int userId, int beerId) {
+        boolean changed;
         try (Session session = sessionFactory.openSession()) {
-            User userToUpdate = session.get(User.class, user.getId());
-            Beer beerToAdd = session.get(Beer.class, beerId);
-            if (userToUpdate == null) {
-                throw new EntityNotFoundException("User", "id", String.valueOf(user.getId()));
-            }
-            if (beerToAdd == null) {
-                throw new EntityNotFoundException("Beer", "id", String.valueOf(beerId));
-            }
             Transaction tx = session.beginTransaction();
             try {
-                userToUpdate.getWishlist().add(beerToAdd);
+                changed = session.doReturningWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                        statement.setInt(1, userId);
+                        statement.setInt(2, beerId);
+                        if (statement.executeUpdate() > 0) {
+                            return true;
+                        }
+                    }
+                    checkWishListEnds(connection, userId, beerId);
+                    return false;
+                });
                 tx.commit();
             }catch (Exception e){
                 tx.rollback();
                 throw e;
             }
         }
+        if (changed) {
+            sessionFactory.getCache().evictCollectionData(WISHLIST_CACHE_ROLE, userId);
+        }
+        return changed;
+    }
+
+    @Override
+    public int[] replaceWishList(int userId, Set<Integer> beerIds) {
+        return applyWishListChange(userId, current -> new HashSet<>(beerIds));
     }
 
     @Override
-    public void removeFromWishList(int userId, int beerId) {
+    public int[] updateWishList(int userId, Set<Integer> add, Set<Integer> remove) {
+        return applyWishListChange(userId, current -> {
+            Set<Integer> target = new HashSet<>(current);
+            target.removeAll(remove);
+            target.addAll(add);
+            return target;
+        });
+    }
+
+    /**
+     * Locks the user row, so concurrent bulk changes of the same wishlist apply one after the
+     * other, reads the stored ids, and writes only the difference to the target set.
+     * <p>
+     * The locks also make the difference exact, so the result and the leaderboard can be taken
+     * from it: single adds wait for the user row (the foreign key check reads it), single removes
+     * and beer deletes wait for the locked wishlist rows, and the beers to add are share-locked,
+     * so none of them can be deleted before the insert.
+     */
+    private int[] applyWishListChange(int userId, Function<Set<Integer>, Set<Integer>> toTarget) {
+        int[] result;
+        Set<Integer> toDelete = new HashSet<>();
+        Set<Integer> toInsert = new HashSet<>();
         try (Session session = sessionFactory.openSession()) {
-            User user = session.get(User.class, userId);
-            Beer beer = session.get(Beer.class, beerId);
-            if (!user.getWishlist().contains(beer)) {
-                throw new EntityNotFoundException("Beer", "id", String.valueOf(beerId));
-            }
             Transaction tx = session.beginTransaction();
             try {
-                user.getWishlist().remove(beer);
+                result = session.doReturningWork(connection -> {
+                    lockUser(connection, userId);
+                    Set<Integer> current = selectIds(connection, LOCK_WISHLIST_IDS_SQL, userId);
+                    Set<Integer> target = toTarget.apply(current);
+
+                    toDelete.addAll(current);
+                    toDelete.removeAll(target);
+                    toInsert.addAll(target);
+                    toInsert.removeAll(current);
+
+                    lockBeers(connection, toInsert);
+                    executeBatch(connection, REMOVE_FROM_WISHLIST_SQL, userId, toDelete);
+                    executeBatch(connection, INSERT_INTO_WISHLIST_SQL, userId, toInsert);
+                    return target.stream().mapToInt(Integer::intValue).sorted().toArray();
+                });
                 tx.commit();
             }catch (Exception e){
                 tx.rollback();
                 throw e;
             }
         }
+        sessionFactory.getCache().evictCollectionData(WISHLIST_CACHE_ROLE, userId);
+        toDelete.forEach(leaderboard::decrement);
+        toInsert.forEach(leaderboard::increment);
+        return result;
+    }
+
+    private static void lockUser(Connection connection, int userId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(LOCK_USER_SQL)) {
+            statement.setInt(1, userId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new EntityNotFoundException("User", "id", String.valueOf(userId));
+                }
+            }
+        }
+    }
+
+    private static Set<Integer> selectIds(Connection connection, String sql, int parameter) throws SQLException {
+        Set<Integer> ids = new HashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, parameter);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Share-locks the given beers until the transaction ends, or throws if any of them does not exist.
+     */
+    private static void lockBeers(Connection connection, Set<Integer> beerIds) throws SQLException {
+        if (beerIds.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(beerIds.size(), "?"));
+        Set<Integer> missing = new HashSet<>(beerIds);
+        try (PreparedStatement statement = connection.prepareStatement(
+                "select beer_id from beers where beer_id in (" + placeholders + ") lock in share mode")) {
+            int index = 1;
+            for (int beerId : beerIds) {
+                statement.setInt(index++, beerId);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    missing.remove(resultSet.getInt(1));
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new EntityNotFoundException("Beer", "id", String.valueOf(missing.iterator().next()));
+        }
+    }
+
+    private static void executeBatch(Connection connection, String sql, int userId, Set<Integer> beerIds) throws SQLException {
+        if (beerIds.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int beerId : beerIds) {
+                statement.setInt(1, userId);
+                statement.setInt(2, beerId);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static void checkWishListEnds(Connection connection, int userId, int beerId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(WISHLIST_ENDS_SQL)) {
+            statement.setInt(1, userId);
+            statement.setInt(2, beerId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                if (resultSet.getInt(1) == 0) {
+                    throw new EntityNotFoundException("User", "id", String.valueOf(userId));
+                }
+                if (resultSet.getInt(2) == 0) {
+                    throw new EntityNotFoundException("Beer", "id", String.valueOf(beerId));
+                }
+            }
+        }
     }
 
     @Override
-    public Set<Beer> getWishList(int userId) {
+    public List<Beer> getWishList(int userId, int afterBeerId, int limit) {
         try (Session session = sessionFactory.openSession()) {
-            User user = session.get(User.class, userId);
-            if (user == null) {
-                throw new EntityNotFoundException("User", "id", String.valueOf(userId));
-            }
-            Hibernate.initialize(user.getWishlist());
-            return new HashSet<>(user.getWishlist());
+            checkUserExists(session, userId);
+            Query<Beer> query = session.createQuery(
+                    "select b from User u join u.wishlist b join fetch b.style left join fetch b.createdBy " +
+                            "where u.id = :userId and b.id > :afterBeerId order by b.id", Beer.class);
+            query.setParameter("userId", userId);
+            query.setParameter("afterBeerId", afterBeerId);
+            query.setMaxResults(limit);
+            return query.list();
+        }
+    }
+
+    @Override
+    public int[] getWishListIds(int userId) {
+        try (Session session = sessionFactory.openSession()) {
+            checkUserExists(session, userId);
+            return session.createNativeQuery(
+                            "select beer_id from wishlists where user_id = :userId order by beer_id", Integer.class)
+                    .setParameter("userId", userId)
+                    .stream()
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+
+    @Override
+    public ChangeStamp getWishListStamp(int userId) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Object[] result = session.createNativeQuery(WISHLIST_STAMP_SQL, Object[].class)
+                    .setParameter("userId", userId)
+                    .getSingleResult();
+            return new ChangeStamp("wishlist." + userId + "." + result[0] + "." + result[1] + "." + result[2], -1);
+        }
+    }
+
+    private static void checkUserExists(Session session, int userId) {
+        if (session.get(User.class, userId) == null) {
+            throw new EntityNotFoundException("User", "id", String.valueOf(userId));
+        }
+    }
+
+    private static void throwIfDuplicate(Exception e, User user) {
+        String key = UniqueKeys.violatedKey(e);
+        if (UniqueKeys.USER_USERNAME.equals(key)) {
+            throw new EntityDuplicateException("User", "username", user.getUsername());
+        }
+        if (UniqueKeys.USER_EMAIL.equals(key)) {
+            throw new EntityDuplicateException("User", "email", user.getEmail());
         }
     }
 }
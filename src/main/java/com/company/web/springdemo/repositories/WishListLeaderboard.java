@@ -0,0 +1,168 @@
+package com.company.web.springdemo.repositories;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * "Most wishlisted beers" kept in memory, so showing the leaderboard never runs a grouped count
+ * over the wishlists table.
+ * <p>
+ * Every beer has a {@link LongAdder} counter, updated by {@link UserRepositoryImpl} after each
+ * committed wishlist change; adders are striped, so concurrent updates of a popular beer do not
+ * contend. The top {@code leaderboard.size} entries are recomputed from the counters every
+ * {@code leaderboard.refresh-interval-ms} and published as arrays, so a read only copies the
+ * requested number of entries.
+ * <p>
+ * Counters can drift (changes made directly in the database, changes racing a reconcile), so
+ * they are reconciled with the database on startup and every
+ * {@code leaderboard.reconcile-interval-ms}. Reconciling adds the difference to each existing
+ * counter instead of replacing it, so updates made while the counts are read are not lost.
+ */
+@Component
+public class WishListLeaderboard {
+
+    private static final Logger logger = LoggerFactory.getLogger(WishListLeaderboard.class);
+
+    private final SessionFactory sessionFactory;
+    private final int size;
+    private final Map<Integer, LongAdder> counts = new ConcurrentHashMap<>();
+    private volatile Top top = new Top(new int[0], new long[0]);
+
+    @Autowired
+    public WishListLeaderboard(SessionFactory sessionFactory,
+                               @Value("${leaderboard.size:100}") int size) {
+        this.sessionFactory = sessionFactory;
+        this.size = size;
+    }
+
+    public void increment(int beerId) {
+        counts.computeIfAbsent(beerId, id -> new LongAdder()).increment();
+    }
+
+    public void decrement(int beerId) {
+        LongAdder count = counts.get(beerId);
+        if (count != null) {
+            count.decrement();
+        }
+    }
+
+    public void remove(int beerId) {
+        counts.remove(beerId);
+    }
+
+    /**
+     * Returns up to {@code limit} beer ids, most wishlisted first, with their counts.
+     */
+    public Entry[] top(int limit) {
+        Top top = this.top;
+        int length = Math.min(limit, top.beerIds.length);
+        Entry[] entries = new Entry[length];
+        for (int i = 0; i < length; i++) {
+            entries[i] = new Entry(top.beerIds[i], top.counts[i]);
+        }
+        return entries;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    @Scheduled(fixedDelayString = "${leaderboard.refresh-interval-ms:1000}")
+    public void refresh() {
+        // Min-heap of the best entries seen so far; ties rank the lower beer id first.
+        Comparator<long[]> ranking = Comparator.<long[]>comparingLong(entry -> entry[1])
+                .thenComparingLong(entry -> -entry[0]);
+        PriorityQueue<long[]> best = new PriorityQueue<>(size + 1, ranking);
+        counts.forEach((beerId, adder) -> {
+            long count = adder.sum();
+            if (count <= 0) {
+                return;
+            }
+            best.add(new long[]{beerId, count});
+            if (best.size() > size) {
+                best.poll();
+            }
+        });
+
+        long[][] entries = best.toArray(long[][]::new);
+        Arrays.sort(entries, ranking.reversed());
+        int[] beerIds = new int[entries.length];
+        long[] topCounts = new long[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            beerIds[i] = (int) entries[i][0];
+            topCounts[i] = entries[i][1];
+        }
+        top = new Top(beerIds, topCounts);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${leaderboard.reconcile-interval-ms:600000}",
+            fixedDelayString = "${leaderboard.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        Map<Integer, Long> stored = new HashMap<>();
+        try (StatelessSession session = sessionFactory.openStatelessSession();
+             Stream<Object[]> rows = session.createNativeQuery(
+                             "select beer_id, count(*) from wishlists group by beer_id", Object[].class)
+                     .stream()) {
+            rows.forEach(row -> stored.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue()));
+        }
+
+        counts.forEach((beerId, adder) -> {
+            if (!stored.containsKey(beerId)) {
+                adder.add(-adder.sum());
+            }
+        });
+        stored.forEach((beerId, count) -> {
+            LongAdder adder = counts.computeIfAbsent(beerId, id -> new LongAdder());
+            adder.add(count - adder.sum());
+        });
+        refresh();
+        logger.info("Wishlist leaderboard reconciled: {} beers on wishlists", stored.size());
+    }
+
+    public static class Entry {
+
+        private final int beerId;
+        private final long count;
+
+        private Entry(int beerId, long count) {
+            this.beerId = beerId;
+            this.count = count;
+        }
+
+        public int getBeerId() {
+            return beerId;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    private static class Top {
+        private final int[] beerIds;
+        private final long[] counts;
+
+        private Top(int[] beerIds, long[] counts) {
+            this.beerIds = beerIds;
+            this.counts = counts;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.company.web.springdemo.services;
+
+import com.company.web.springdemo.models.ImportReport;
+import com.company.web.springdemo.models.User;
+
+import java.io.BufferedReader;
+
+public interface BeerImportService {
+
+    enum Format {
+        CSV,
+        NDJSON
+    }
+
+    /**
+     * Reads the file record by record and inserts the valid beers in fixed-size chunks.
+     * Rows that are malformed, invalid, duplicates or fail to insert are counted and reported;
+     * the import carries on with the next row.
+     */
+    ImportReport importBeers(BufferedReader reader, Format format, User user);
+
+}
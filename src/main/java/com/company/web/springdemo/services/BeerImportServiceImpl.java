@@ -0,0 +1,197 @@
+package com.company.web.springdemo.services;
+
+import com.company.web.springdemo.helpers.BeerImportParser;
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerDto;
+import com.company.web.springdemo.models.BeerImportRow;
+import com.company.web.springdemo.models.ImportReport;
+import com.company.web.springdemo.models.Style;
+import com.company.web.springdemo.models.User;
+import com.company.web.springdemo.repositories.BeerRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class BeerImportServiceImpl implements BeerImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BeerImportServiceImpl.class);
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final String DUPLICATE_MESSAGE = "A beer with this name already exists.";
+    private static final String INSERT_FAILED_MESSAGE = "Insert failed.";
+
+    private final BeerRepository repository;
+    private final StyleService styleService;
+    private final BeerImportParser parser;
+    private final Validator validator;
+
+    @Autowired
+    public BeerImportServiceImpl(BeerRepository repository,
+                                 StyleService styleService,
+                                 BeerImportParser parser,
+                                 Validator validator) {
+        this.repository = repository;
+        this.styleService = styleService;
+        this.parser = parser;
+        this.validator = validator;
+    }
+
+    @Override
+    public ImportReport importBeers(BufferedReader reader, Format format, User user) {
+        Iterator<BeerImportRow> rows = format == Format.CSV ? parser.parseCsv(reader) : parser.parseNdjson(reader);
+        Import anImport = new Import(user);
+
+        List<BeerImportRow> chunk = new ArrayList<>(CHUNK_SIZE);
+        try {
+            while (rows.hasNext()) {
+                chunk.add(rows.next());
+                if (chunk.size() == CHUNK_SIZE) {
+                    anImport.write(chunk);
+                    chunk.clear();
+                }
+            }
+            anImport.write(chunk);
+        } finally {
+            // Inserts skip the name index and the catalog; bring both up to date once, even if
+            // the import stopped half way.
+            if (anImport.created > 0) {
+                repository.afterInsert();
+            }
+        }
+        return anImport.report();
+    }
+
+    /**
+     * State of one running import. Only the current chunk and the counters live here, so memory
+     * stays the same whatever the size of the file.
+     */
+    private class Import {
+
+        private final User user;
+        private final Map<String, Style> styles;
+        private final List<ImportReport.RowError> errors = new ArrayList<>();
+        private final long start = System.nanoTime();
+        private long rowsRead;
+        private long created;
+        private long rejected;
+
+        private Import(User user) {
+            this.user = user;
+            // Style names are resolved from memory instead of a lookup per row.
+            this.styles = styleService.get().stream()
+                    .collect(Collectors.toMap(style -> style.getName().toLowerCase(), Function.identity(),
+                            (first, second) -> first));
+        }
+
+        private void write(List<BeerImportRow> rows) {
+            if (rows.isEmpty()) {
+                return;
+            }
+            rowsRead += rows.size();
+
+            // Earlier chunks are committed, so one query finds duplicates of both the database and the file.
+            Set<String> takenNames = repository.getExistingNames(rows.stream()
+                            .filter(row -> !row.isMalformed() && row.getName() != null)
+                            .map(BeerImportRow::getName)
+                            .toList())
+                    .stream()
+                    .map(String::toLowerCase)
+                    .collect(Collectors.toCollection(HashSet::new));
+
+            List<Beer> beers = new ArrayList<>(rows.size());
+            List<Long> lines = new ArrayList<>(rows.size());
+            for (BeerImportRow row : rows) {
+                String error = validate(row, takenNames);
+                if (error != null) {
+                    reject(row.getLine(), error);
+                    continue;
+                }
+                Beer beer = new Beer(0, row.getName(), row.getAbv());
+                beer.setStyle(styles.get(row.getStyleName().toLowerCase()));
+                beer.setCreatedBy(user);
+                beers.add(beer);
+                lines.add(row.getLine());
+            }
+
+            try {
+                repository.insert(beers);
+                created += beers.size();
+            } catch (RuntimeException e) {
+                // Find the failing rows by inserting the chunk one row at a time.
+                for (int i = 0; i < beers.size(); i++) {
+                    try {
+                        repository.insert(List.of(beers.get(i)));
+                        created++;
+                    } catch (RuntimeException rowException) {
+                        reject(lines.get(i), INSERT_FAILED_MESSAGE);
+                    }
+                }
+            }
+
+            logger.info("Beer import: {} rows read, {} created, {} rejected, {} rows/s",
+                    rowsRead, created, rejected, rowsPerSecond());
+        }
+
+        private String validate(BeerImportRow row, Set<String> takenNames) {
+            if (row.isMalformed()) {
+                return row.getError();
+            }
+            Style style = row.getStyleName() == null ? null : styles.get(row.getStyleName().toLowerCase());
+            if (style == null) {
+                return "Style " + row.getStyleName() + " not found.";
+            }
+
+            BeerDto dto = new BeerDto();
+            dto.setName(row.getName());
+            dto.setAbv(row.getAbv());
+            dto.setStyleId(style.getId());
+            Set<ConstraintViolation<BeerDto>> violations = validator.validate(dto);
+            if (!violations.isEmpty()) {
+                return violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+            }
+
+            if (!takenNames.add(row.getName().toLowerCase())) {
+                return DUPLICATE_MESSAGE;
+            }
+            return null;
+        }
+
+        private void reject(long line, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportReport.RowError(line, message));
+            }
+        }
+
+        private long rowsPerSecond() {
+            long elapsedMillis = elapsedMillis();
+            return elapsedMillis == 0 ? rowsRead : rowsRead * 1000 / elapsedMillis;
+        }
+
+        private long elapsedMillis() {
+            return (System.nanoTime() - start) / 1_000_000;
+        }
+
+        private ImportReport report() {
+            return new ImportReport(rowsRead, created, rejected, elapsedMillis(), errors);
+        }
+    }
+}
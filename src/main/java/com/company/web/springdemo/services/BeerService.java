@@ -1,19 +1,67 @@
 package com.company.web.springdemo.services;
 
+import com.company.web.springdemo.models.BatchItemResult;
 import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerDto;
+import com.company.web.springdemo.models.BeerSummary;
+import com.company.web.springdemo.models.ChangeStamp;
+import com.company.web.springdemo.models.CursorPage;
+import com.company.web.springdemo.models.FilterOptions;
+import com.company.web.springdemo.models.PopularBeer;
 import com.company.web.springdemo.models.User;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface BeerService {
 
     List<Beer> get(String name, Double minAbv, Double maxAbv, String styleName, String sortBy, String sortOrder);
 
+    CursorPage<Beer> get(FilterOptions filterOptions, String cursor, int limit);
+
+    Stream<BeerSummary> stream(FilterOptions filterOptions);
+
+    List<BeerSummary> getSnapshot(FilterOptions filterOptions);
+
+    /**
+     * Returns the most wishlisted beers, most popular first. Counts are refreshed about once a
+     * second, so a wishlist change can take that long to show up.
+     */
+    List<PopularBeer> getPopular(int limit);
+
     Beer get(int id);
 
+    /**
+     * Returns the change stamp of the beer collection as stored in the database.
+     */
+    ChangeStamp getStamp();
+
+    /**
+     * Returns the change stamp of the catalog snapshot behind {@link #getSnapshot}, or null if it
+     * is not built yet.
+     */
+    ChangeStamp getSnapshotStamp();
+
+    /**
+     * Returns the change stamp of one beer, or null if it is not known.
+     */
+    ChangeStamp getStamp(int id);
+
     void create(Beer beer, User user);
 
-    void update(Beer beer, User user);
+    /**
+     * Validates and creates the beers, returning one result per item in request order.
+     * Invalid, duplicate and unknown-style items are reported and skipped; the rest are inserted
+     * in chunks, each in its own transaction.
+     */
+    List<BatchItemResult> create(List<BeerDto> beerDtos, User user);
+
+    /**
+     * Updates the beer. If {@code expectedTags} is not null the beer is only updated while its
+     * current stamp is one of them, otherwise {@link com.company.web.springdemo.exceptions.EntityModifiedException}
+     * is thrown. A missing beer or a user who may not modify it is reported first, whatever the tags.
+     */
+    void update(Beer beer, User user, List<String> expectedTags);
 
     void delete(int id, User user);
 
@@ -3,24 +3,69 @@ package com.company.web.springdemo.services;
 import com.company.web.springdemo.exceptions.AuthorizationException;
 import com.company.web.springdemo.exceptions.EntityDuplicateException;
 import com.company.web.springdemo.exceptions.EntityNotFoundException;
+import com.company.web.springdemo.models.BatchItemResult;
 import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerDto;
+import com.company.web.springdemo.models.BeerSummary;
+import com.company.web.springdemo.models.ChangeStamp;
+import com.company.web.springdemo.models.CursorPage;
+import com.company.web.springdemo.models.FilterOptions;
+import com.company.web.springdemo.models.PageCursor;
+import com.company.web.springdemo.models.PopularBeer;
+import com.company.web.springdemo.models.Style;
 import com.company.web.springdemo.models.User;
+import com.company.web.springdemo.repositories.BeerCatalog;
 import com.company.web.springdemo.repositories.BeerRepository;
+import com.company.web.springdemo.repositories.WishListLeaderboard;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class BeerServiceImpl implements BeerService {
 
+    private static final Logger logger = LoggerFactory.getLogger(BeerServiceImpl.class);
+
     private static final String MODIFY_BEER_ERROR_MESSAGE = "Only admin or beer creator can modify a beer.";
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int INSERT_CHUNK_SIZE = 500;
+    // Versions start at 0, so an update expecting this one never matches a row.
+    private static final long NO_VERSION = -1;
+    private static final String INSERT_FAILED_MESSAGE = "Insert failed, this chunk of the batch was rolled back.";
 
     private final BeerRepository repository;
+    private final BeerCatalog catalog;
+    private final StyleService styleService;
+    private final Validator validator;
+    private final WishListLeaderboard leaderboard;
 
     @Autowired
-    public BeerServiceImpl(BeerRepository repository) {
+    public BeerServiceImpl(BeerRepository repository,
+                           BeerCatalog catalog,
+                           StyleService styleService,
+                           Validator validator,
+                           WishListLeaderboard leaderboard) {
         this.repository = repository;
+        this.catalog = catalog;
+        this.styleService = styleService;
+        this.validator = validator;
+        this.leaderboard = leaderboard;
     }
 
     @Override
@@ -29,56 +74,173 @@ public class BeerServiceImpl implements BeerService {
     }
 
     @Override
-    public Beer get(int id) {
-        return repository.get(id);
+    public CursorPage<Beer> get(FilterOptions filterOptions, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        PageCursor after = cursor == null || cursor.isBlank() ? null : PageCursor.decode(cursor, filterOptions);
+
+        // One extra row tells whether there is a next page without a count query.
+        List<Beer> beers = repository.get(filterOptions, after, pageSize + 1);
+        if (beers.size() <= pageSize) {
+            return new CursorPage<>(beers, null);
+        }
+
+        List<Beer> page = beers.subList(0, pageSize);
+        String nextCursor = PageCursor.after(page.get(pageSize - 1), filterOptions).encode();
+        return new CursorPage<>(page, nextCursor);
     }
 
     @Override
-    public void create(Beer beer, User user) {
-        boolean duplicateExists = true;
-        try {
-            repository.get(beer.getName());
-        } catch (EntityNotFoundException e) {
-            duplicateExists = false;
+    public Stream<BeerSummary> stream(FilterOptions filterOptions) {
+        return repository.stream(filterOptions);
+    }
+
+    @Override
+    public List<BeerSummary> getSnapshot(FilterOptions filterOptions) {
+        List<BeerSummary> beers = catalog.find(filterOptions);
+        if (beers != null) {
+            return beers;
         }
 
-        if (duplicateExists) {
-            throw new EntityDuplicateException("Beer", "name", beer.getName());
+        // The catalog is built once the application is ready; until then read from the database.
+        try (Stream<BeerSummary> stream = repository.stream(filterOptions)) {
+            return stream.toList();
         }
+    }
+
+    @Override
+    public List<PopularBeer> getPopular(int limit) {
+        int size = Math.max(1, Math.min(limit, leaderboard.getSize()));
+        List<PopularBeer> result = new ArrayList<>(size);
+        for (WishListLeaderboard.Entry entry : leaderboard.top(size)) {
+            // A beer deleted since the last refresh is no longer in the catalog.
+            BeerSummary beer = catalog.get(entry.getBeerId());
+            if (beer != null) {
+                result.add(new PopularBeer(beer.getId(), beer.getName(), beer.getAbv(),
+                        beer.getStyleName(), entry.getCount()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Beer get(int id) {
+        return repository.get(id);
+    }
+
+    @Override
+    public ChangeStamp getStamp() {
+        return repository.getStamp();
+    }
 
+    @Override
+    public ChangeStamp getSnapshotStamp() {
+        return catalog.getStamp();
+    }
+
+    @Override
+    public ChangeStamp getStamp(int id) {
+        return repository.getStamp(id);
+    }
+
+    @Override
+    public void create(Beer beer, User user) {
+        // A duplicate name is rejected by the unique key, see BeerRepositoryImpl.
         beer.setCreatedBy(user);
         repository.create(beer);
     }
 
     @Override
-    public void update(Beer beer, User user) {
-        checkModifyPermissions(beer.getId(), user);
-        boolean duplicateExists = true;
-        try {
-            Beer existingBeer = repository.get(beer.getName());
-            if (existingBeer.getId() == beer.getId()) {
-                duplicateExists = false;
-            }
-        } catch (EntityNotFoundException e) {
-            duplicateExists = false;
+    public List<BatchItemResult> create(List<BeerDto> beerDtos, User user) {
+        if (beerDtos.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("A batch can contain at most " + MAX_BATCH_SIZE + " beers.");
         }
 
-        if (duplicateExists) {
-            throw new EntityDuplicateException("Beer", "name", beer.getName());
+        BatchItemResult[] results = new BatchItemResult[beerDtos.size()];
+        Map<Integer, Style> styles = styleService.get().stream()
+                .collect(Collectors.toMap(Style::getId, Function.identity()));
+        Set<String> existingNames = repository.getExistingNames(beerDtos.stream()
+                        .map(BeerDto::getName)
+                        .filter(Objects::nonNull)
+                        .toList())
+                .stream()
+                .map(String::toLowerCase)
+                .collect(Collectors.toSet());
+
+        // Names compare case-insensitively, like the database collation.
+        Set<String> batchNames = new HashSet<>();
+        List<Integer> accepted = new ArrayList<>();
+        Map<Integer, Beer> beers = new HashMap<>();
+        for (int i = 0; i < beerDtos.size(); i++) {
+            BeerDto dto = beerDtos.get(i);
+            Set<ConstraintViolation<BeerDto>> violations = validator.validate(dto);
+            if (!violations.isEmpty()) {
+                results[i] = BatchItemResult.rejected(i, BatchItemResult.Status.INVALID, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                continue;
+            }
+
+            String lowerCaseName = dto.getName().toLowerCase();
+            if (existingNames.contains(lowerCaseName) || !batchNames.add(lowerCaseName)) {
+                results[i] = BatchItemResult.rejected(i, BatchItemResult.Status.DUPLICATE,
+                        new EntityDuplicateException("Beer", "name", dto.getName()).getMessage());
+                continue;
+            }
+
+            Style style = styles.get(dto.getStyleId());
+            if (style == null) {
+                results[i] = BatchItemResult.rejected(i, BatchItemResult.Status.NOT_FOUND,
+                        new EntityNotFoundException("Style", "id", String.valueOf(dto.getStyleId())).getMessage());
+                continue;
+            }
+
+            Beer beer = new Beer(0, dto.getName(), dto.getAbv());
+            beer.setStyle(style);
+            beer.setCreatedBy(user);
+            beers.put(i, beer);
+            accepted.add(i);
         }
 
-        repository.update(beer);
+        for (int from = 0; from < accepted.size(); from += INSERT_CHUNK_SIZE) {
+            List<Integer> chunk = accepted.subList(from, Math.min(from + INSERT_CHUNK_SIZE, accepted.size()));
+            try {
+                repository.create(chunk.stream().map(beers::get).toList());
+                for (int i : chunk) {
+                    results[i] = BatchItemResult.created(i, beers.get(i).getId());
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Beer batch: chunk of {} items at position {} failed and was rolled back",
+                        chunk.size(), from, e);
+                // Chunks committed before this one stay.
+                for (int i : chunk) {
+                    results[i] = BatchItemResult.rejected(i, BatchItemResult.Status.FAILED, INSERT_FAILED_MESSAGE);
+                }
+            }
+        }
+        return Arrays.asList(results);
     }
 
     @Override
-    public void delete(int id, User user) {
-        checkModifyPermissions(id, user);
-        repository.delete(id);
+    public void update(Beer beer, User user, List<String> expectedTags) {
+        Long expectedVersion = null;
+        if (expectedTags != null) {
+            // The version goes into the update, so a write that happened since this read fails as
+            // well. A tag that does not match still runs the update, with a version no row has: the
+            // update then reports a missing beer or a requester who may not modify it before a
+            // version mismatch, so a stale tag tells a non-owner nothing.
+            ChangeStamp current = repository.getStamp(beer.getId());
+            expectedVersion = current != null && expectedTags.contains(current.getTag())
+                    ? current.getVersion() : NO_VERSION;
+        }
+        if (!repository.update(beer, user.getId(), user.isAdmin(), expectedVersion)) {
+            throw new AuthorizationException(MODIFY_BEER_ERROR_MESSAGE);
+        }
     }
 
-    private void checkModifyPermissions(int beerId, User user) {
-        Beer beer = repository.get(beerId);
-        if (!(user.isAdmin() || beer.getCreatedBy().equals(user))) {
+    @Override
+    public void delete(int id, User user) {
+        if (!repository.delete(id, user.getId(), user.isAdmin())) {
             throw new AuthorizationException(MODIFY_BEER_ERROR_MESSAGE);
         }
     }
@@ -1,6 +1,8 @@
 package com.company.web.springdemo.services;
 
 import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.ChangeStamp;
+import com.company.web.springdemo.models.CursorPage;
 import com.company.web.springdemo.models.User;
 
 import java.util.List;
@@ -24,5 +26,16 @@ public interface UserService {
 
     void removeFromWishList(User user, int beerId, int userId);
 
-    Set<Beer> getWishList(User requester, int userId);
+    CursorPage<Beer> getWishList(User requester, int userId, String cursor, int limit);
+
+    int[] getWishListIds(User requester, int userId);
+
+    /**
+     * Returns the change stamp of the wishlist, which also changes with the beers on it.
+     */
+    ChangeStamp getWishListStamp(User requester, int userId);
+
+    int[] replaceWishList(User requester, int userId, Set<Integer> beerIds);
+
+    int[] updateWishList(User requester, int userId, Set<Integer> add, Set<Integer> remove);
 }
@@ -1,11 +1,13 @@
 package com.company.web.springdemo.services;
 
 import com.company.web.springdemo.exceptions.AuthorizationException;
-import com.company.web.springdemo.exceptions.EntityDuplicateException;
-import com.company.web.springdemo.exceptions.EntityNotFoundException;
+import com.company.web.springdemo.helpers.PrincipalCache;
 import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.ChangeStamp;
+import com.company.web.springdemo.models.CursorPage;
+import com.company.web.springdemo.models.FilterOptions;
+import com.company.web.springdemo.models.PageCursor;
 import com.company.web.springdemo.models.User;
-import com.company.web.springdemo.repositories.BeerRepository;
 import com.company.web.springdemo.repositories.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -16,13 +18,19 @@ import java.util.Set;
 @Service
 public class UserServiceImpl implements UserService {
 
+    private static final int MAX_WISHLIST_PAGE_SIZE = 500;
+    private static final int MAX_WISHLIST_CHANGE_SIZE = 10_000;
+    private static final FilterOptions WISHLIST_ORDER =
+            new FilterOptions(null, null, null, null, FilterOptions.SORT_BY_ID, "asc");
+
     private final UserRepository userRepository;
-    private final BeerRepository beerRepository;
+    private final PrincipalCache principalCache;
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository, BeerRepository beerRepository) {
+    public UserServiceImpl(UserRepository userRepository,
+                           PrincipalCache principalCache) {
         this.userRepository = userRepository;
-        this.beerRepository = beerRepository;
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -42,18 +50,16 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public void create(User user) {
-        validateUniqueEmail(user);
-        validateUniqueUsername(user);
-
+        // Duplicate usernames and emails are rejected by the unique keys, see UserRepositoryImpl.
         userRepository.create(user);
     }
 
     @Override
     public User update(int userId, User user) {
-        validateUniqueEmail(user, userId);
-        validateUniqueUsername(user, userId);
-
-        return userRepository.update(user);
+        user.setId(userId);
+        User updated = userRepository.update(user);
+        principalCache.invalidate(userId);
+        return updated;
     }
 
     @Override
@@ -62,6 +68,7 @@ public class UserServiceImpl implements UserService {
             throw new AuthorizationException("You are not authorized to complete this operation.");
         }
         userRepository.delete(id);
+        principalCache.invalidate(id);
     }
 
     @Override
@@ -69,7 +76,7 @@ public class UserServiceImpl implements UserService {
         if (!isUserAuthorized(user, userId)){
             throw new AuthorizationException("You are not authorized to add to this wishlist");
         }
-        userRepository.addBeerToWishList(user, beerId);
+        userRepository.addBeerToWishList(userId, beerId);
     }
 
     @Override
@@ -77,55 +84,76 @@ public class UserServiceImpl implements UserService {
         if (!isUserAuthorized(requester, userId)){
             throw new AuthorizationException("You are not authorized to remove from this wishlist.");
         }
-        User user = userRepository.get(userId);
-        Beer beer = beerRepository.get(beerId);
-        if (beer == null){
-            throw new EntityNotFoundException("Beer", "id", String.valueOf(beerId));
-        }
         userRepository.removeFromWishList(userId, beerId);
     }
 
     @Override
-    public Set<Beer> getWishList(User requester, int userId) {
+    public CursorPage<Beer> getWishList(User requester, int userId, String cursor, int limit) {
         if (!isUserAuthorized(requester, userId)){
             throw new AuthorizationException("You are not authorized to browse user information.");
         }
-        return userRepository.getWishList(userId);
+        int pageSize = Math.max(1, Math.min(limit, MAX_WISHLIST_PAGE_SIZE));
+        int afterBeerId = cursor == null || cursor.isBlank() ? 0 : PageCursor.decode(cursor, WISHLIST_ORDER).getId();
+
+        // One extra row tells whether there is a next page without a count query.
+        List<Beer> beers = userRepository.getWishList(userId, afterBeerId, pageSize + 1);
+        if (beers.size() <= pageSize) {
+            return new CursorPage<>(beers, null);
+        }
+        List<Beer> page = beers.subList(0, pageSize);
+        return new CursorPage<>(page, PageCursor.after(page.get(pageSize - 1), WISHLIST_ORDER).encode());
     }
 
-    private boolean isUserAuthorized(User requester, int userId) {
-        return (requester.isAdmin() || requester.getId() == userId);
+    @Override
+    public int[] getWishListIds(User requester, int userId) {
+        if (!isUserAuthorized(requester, userId)){
+            throw new AuthorizationException("You are not authorized to browse user information.");
+        }
+        return userRepository.getWishListIds(userId);
+    }
+
+    @Override
+    public ChangeStamp getWishListStamp(User requester, int userId) {
+        if (!isUserAuthorized(requester, userId)){
+            throw new AuthorizationException("You are not authorized to browse user information.");
+        }
+        return userRepository.getWishListStamp(userId);
     }
 
-    private void validateUniqueEmail(User user){
-        try {
-            userRepository.getByEmail(user.getEmail());
-            throw new EntityDuplicateException("User", "email", user.getEmail());
-        } catch (EntityNotFoundException ignored){ }
+    @Override
+    public int[] replaceWishList(User requester, int userId, Set<Integer> beerIds) {
+        if (!isUserAuthorized(requester, userId)){
+            throw new AuthorizationException("You are not authorized to modify this wishlist.");
+        }
+        checkWishListChange(beerIds.size(), beerIds);
+        return userRepository.replaceWishList(userId, beerIds);
     }
 
-    private void validateUniqueUsername(User user){
-        try {
-            userRepository.getByUsername(user.getUsername());
-            throw new EntityDuplicateException("User", "username", user.getUsername());
-        } catch (EntityNotFoundException ignored) { }
+    @Override
+    public int[] updateWishList(User requester, int userId, Set<Integer> add, Set<Integer> remove) {
+        if (!isUserAuthorized(requester, userId)){
+            throw new AuthorizationException("You are not authorized to modify this wishlist.");
+        }
+        checkWishListChange(add.size() + remove.size(), add, remove);
+        if (add.stream().anyMatch(remove::contains)) {
+            throw new IllegalArgumentException("A beer cannot be both added to and removed from the wishlist.");
+        }
+        return userRepository.updateWishList(userId, add, remove);
     }
 
-    private void validateUniqueEmail(User user, int excludeId){
-        try {
-            User testUser = userRepository.getByEmail(user.getEmail());
-            if (testUser.getId() != excludeId){
-                throw new EntityDuplicateException("User", "email", user.getEmail());
+    @SafeVarargs
+    private static void checkWishListChange(int size, Set<Integer>... beerIds) {
+        if (size > MAX_WISHLIST_CHANGE_SIZE) {
+            throw new IllegalArgumentException("A wishlist change can contain at most " + MAX_WISHLIST_CHANGE_SIZE + " beers.");
+        }
+        for (Set<Integer> ids : beerIds) {
+            if (ids.contains(null)) {
+                throw new IllegalArgumentException("Beer ids cannot be null.");
             }
-        } catch (EntityNotFoundException ignored){ }
+        }
     }
 
-    private void validateUniqueUsername(User user, int excludeId){
-        try {
-            User testUser = userRepository.getByUsername(user.getUsername());
-            if (testUser.getId() != excludeId){
-                throw new EntityDuplicateException("User", "username", user.getUsername());
-            }
-        } catch (EntityNotFoundException ignored) { }
+    private boolean isUserAuthorized(User requester, int userId) {
+        return (requester.isAdmin() || requester.getId() == userId);
     }
 }
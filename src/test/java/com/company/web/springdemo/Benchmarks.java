@@ -0,0 +1,35 @@
+package com.company.web.springdemo;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Warm-up and timing loop shared by the benchmark-tagged tests.
+ */
+public final class Benchmarks {
+
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int MEASURED_ITERATIONS = 2000;
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Runs the operation until warmed up, then times it and prints the average time per call and
+     * the average of the row counts it returned.
+     */
+    public static void measure(String label, IntSupplier operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.getAsInt();
+        }
+
+        long rows = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            rows += operation.getAsInt();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%s: %,d ns/op (%d rows/op)%n",
+                label, elapsed / MEASURED_ITERATIONS, rows / MEASURED_ITERATIONS);
+    }
+}
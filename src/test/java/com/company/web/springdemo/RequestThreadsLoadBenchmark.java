@@ -0,0 +1,167 @@
+package com.company.web.springdemo;
+
+import com.company.web.springdemo.models.BeerSummary;
+import com.company.web.springdemo.models.FilterOptions;
+import com.company.web.springdemo.repositories.BeerCatalog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of the running application with request handling on the Tomcat thread pool and on
+ * virtual threads ({@code spring.threads.virtual.enabled}). Each run starts the whole application
+ * on a random port against the configured database, so requests go through Tomcat, Spring MVC,
+ * Hibernate and the bulkhead-wrapped data source. The clients send a mix of database list pages,
+ * single beers and in-memory catalog queries, and the run reports throughput, latency and the
+ * peaks of the db.bulkhead.* and hikaricp.connections.pending meters.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class RequestThreadsLoadBenchmark {
+
+    private static final int CLIENTS = 400;
+    private static final int WARM_UP_REQUESTS = 2000;
+    private static final int REQUESTS = 40000;
+    private static final String[] PATHS = {
+            "/api/beers?limit=20&sortBy=name",
+            "/api/beers?consistency=snapshot&minAbv=4&maxAbv=6&sortBy=abv",
+            "/api/beers/%d"
+    };
+
+    @Test
+    void highConcurrency() throws Exception {
+        double platform = run(false);
+        double virtual = run(true);
+
+        System.out.printf("virtual/platform throughput: %.2fx%n", virtual / platform);
+    }
+
+    private static double run(boolean virtualThreads) throws Exception {
+        String label = virtualThreads ? "virtual threads " : "platform threads";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringDemoApplication.class)
+                .properties("server.port=0", "spring.threads.virtual.enabled=" + virtualThreads)
+                .run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+            int[] beerIds = context.getBean(BeerCatalog.class)
+                    .find(new FilterOptions(null, null, null, null, FilterOptions.SORT_BY_ID, "asc"))
+                    .stream()
+                    .mapToInt(BeerSummary::getId)
+                    .toArray();
+            Assumptions.assumeTrue(beerIds.length > 0, "The benchmark needs beers in the database.");
+
+            try (HttpClient client = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build()) {
+                return measure(label, client, port, beerIds, registry);
+            }
+        }
+    }
+
+    private static double measure(String label, HttpClient client, int port, int[] beerIds, MeterRegistry registry)
+            throws Exception {
+        send(client, port, beerIds, WARM_UP_REQUESTS, new long[WARM_UP_REQUESTS], new AtomicInteger());
+
+        double rejectedBefore = registry.get("db.bulkhead.rejected").functionCounter().count();
+        Peaks peaks = new Peaks(registry);
+        Thread sampler = Thread.ofVirtual().start(peaks);
+        long[] latencies = new long[REQUESTS];
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+        send(client, port, beerIds, REQUESTS, latencies, failed);
+        long elapsed = System.nanoTime() - start;
+        sampler.interrupt();
+        sampler.join();
+        double rejected = registry.get("db.bulkhead.rejected").functionCounter().count() - rejectedBefore;
+
+        Arrays.sort(latencies);
+        double perSecond = REQUESTS * 1e9 / elapsed;
+        System.out.printf("%s: %,.0f requests/s, p50 %.1f ms, p99 %.1f ms, %d failed%n", label, perSecond,
+                latencies[REQUESTS / 2] / 1e6, latencies[REQUESTS * 99 / 100] / 1e6, failed.get());
+        System.out.printf("%s: db.bulkhead.limit %.0f, peak running %d, peak queued %d, rejected %.0f, "
+                        + "peak hikaricp.connections.pending %d%n", label,
+                registry.get("db.bulkhead.limit").gauge().value(), peaks.running.get(), peaks.queued.get(),
+                rejected, peaks.pending.get());
+        return perSecond;
+    }
+
+    /**
+     * Sends {@code count} requests from {@link #CLIENTS} concurrent clients, cycling through the
+     * paths, and records the latency of each.
+     */
+    private static void send(HttpClient client, int port, int[] beerIds, int count, long[] latencies,
+                             AtomicInteger failed) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> clients = new ArrayList<>(CLIENTS);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTS; c++) {
+                clients.add(executor.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                        String path = PATHS[i % PATHS.length].formatted(beerIds[i % beerIds.length]);
+                        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                                .timeout(Duration.ofSeconds(30))
+                                .build();
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        latencies[i] = System.nanoTime() - start;
+                        if (response.statusCode() != 200) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : clients) {
+                future.get();
+            }
+        }
+    }
+
+    /**
+     * Samples the bulkhead and pool gauges every millisecond and keeps the highest values seen.
+     */
+    private static class Peaks implements Runnable {
+
+        private final MeterRegistry registry;
+        private final AtomicLong running = new AtomicLong();
+        private final AtomicLong queued = new AtomicLong();
+        private final AtomicLong pending = new AtomicLong();
+
+        private Peaks(MeterRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                running.accumulateAndGet((long) registry.get("db.bulkhead.running").gauge().value(), Math::max);
+                queued.accumulateAndGet((long) registry.get("db.bulkhead.queued").gauge().value(), Math::max);
+                pending.accumulateAndGet((long) registry.get("hikaricp.connections.pending").gauge().value(), Math::max);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
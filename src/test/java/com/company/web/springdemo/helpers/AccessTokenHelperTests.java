@@ -0,0 +1,78 @@
+package com.company.web.springdemo.helpers;
+
+import com.company.web.springdemo.exceptions.AuthorizationException;
+import com.company.web.springdemo.models.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessTokenHelperTests {
+
+    private static final String OLD_KEY = "k1:c2VjcmV0LW9uZS1zZWNyZXQtb25lLXNlY3JldC1vbmU=";
+    private static final String NEW_KEY = "k2:c2VjcmV0LXR3by1zZWNyZXQtdHdvLXNlY3JldC10d28=";
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    void verify_returnsUserFromIssuedToken() {
+        AccessTokenHelper helper = new AccessTokenHelper(OLD_KEY, "k1", 60, CLOCK);
+
+        User user = helper.verify(helper.issue(new User(7, "pesho", "secret", true)));
+
+        assertEquals(7, user.getId());
+        assertEquals("pesho", user.getUsername());
+        assertTrue(user.isAdmin());
+    }
+
+    @Test
+    void verify_rejectsTamperedToken() {
+        AccessTokenHelper helper = new AccessTokenHelper(OLD_KEY, "k1", 60, CLOCK);
+        String token = helper.issue(new User(7, "pesho", "secret", false));
+        String forged = helper.issue(new User(1, "admin", "secret", true));
+
+        String tampered = token.substring(0, token.lastIndexOf('.')) + forged.substring(forged.lastIndexOf('.'));
+
+        assertThrows(AuthorizationException.class, () -> helper.verify(tampered));
+    }
+
+    @Test
+    void verify_rejectsExpiredToken() {
+        String token = new AccessTokenHelper(OLD_KEY, "k1", 60, CLOCK).issue(new User(7, "pesho", "secret", false));
+        AccessTokenHelper later = new AccessTokenHelper(OLD_KEY, "k1", 60, Clock.offset(CLOCK, Duration.ofSeconds(61)));
+
+        assertThrows(AuthorizationException.class, () -> later.verify(token));
+    }
+
+    @Test
+    void verify_acceptsTokensSignedWithPreviousKey_afterRotation() {
+        String token = new AccessTokenHelper(OLD_KEY, "k1", 60, CLOCK).issue(new User(7, "pesho", "secret", false));
+        AccessTokenHelper rotated = new AccessTokenHelper(OLD_KEY + "," + NEW_KEY, "k2", 60, CLOCK);
+
+        assertEquals(7, rotated.verify(token).getId());
+        assertTrue(rotated.issue(new User(7, "pesho", "secret", false)).startsWith("k2."));
+    }
+
+    @Test
+    void verify_rejectsTokensSignedWithRemovedKey() {
+        String token = new AccessTokenHelper(OLD_KEY, "k1", 60, CLOCK).issue(new User(7, "pesho", "secret", false));
+        AccessTokenHelper rotated = new AccessTokenHelper(NEW_KEY, "k2", 60, CLOCK);
+
+        assertThrows(AuthorizationException.class, () -> rotated.verify(token));
+    }
+
+    @Test
+    void verify_acceptsOnlyOwnTokens_whenNoKeysAreConfigured() {
+        AccessTokenHelper helper = new AccessTokenHelper("", "", 60, CLOCK);
+        AccessTokenHelper otherProcess = new AccessTokenHelper("", "", 60, CLOCK);
+        String token = helper.issue(new User(7, "pesho", "secret", false));
+
+        assertEquals(7, helper.verify(token).getId());
+        assertThrows(AuthorizationException.class, () -> otherProcess.verify(token));
+    }
+}
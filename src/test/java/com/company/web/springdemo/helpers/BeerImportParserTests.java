@@ -0,0 +1,83 @@
+package com.company.web.springdemo.helpers;
+
+import com.company.web.springdemo.models.BeerImportRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BeerImportParserTests {
+
+    private final BeerImportParser parser = new BeerImportParser(new ObjectMapper());
+
+    @Test
+    void parseCsv_readsColumnsByHeader_andKeepsLineNumbers() {
+        List<BeerImportRow> rows = parse(parser.parseCsv(reader(
+                "style,name,abv\n"
+                        + "IPA,\"Hazy, \"\"Juicy\"\"\",6.5\n"
+                        + "\n"
+                        + "Stout,Night,not-a-number\n")));
+
+        assertEquals(2, rows.size());
+        assertEquals(2, rows.get(0).getLine());
+        assertEquals("Hazy, \"Juicy\"", rows.get(0).getName());
+        assertEquals(6.5, rows.get(0).getAbv());
+        assertEquals("IPA", rows.get(0).getStyleName());
+        assertEquals(4, rows.get(1).getLine());
+        assertTrue(rows.get(1).isMalformed());
+    }
+
+    @Test
+    void parseCsv_readsQuotedFieldsAcrossLines() {
+        List<BeerImportRow> rows = parse(parser.parseCsv(reader(
+                "name,abv,style\n"
+                        + "\"Two\nLines\",5.0,Lager\n"
+                        + "Next,4.0,Lager\n"
+                        + "\"Open,4.0,Lager\n")));
+
+        assertEquals(3, rows.size());
+        assertEquals("Two\nLines", rows.get(0).getName());
+        assertEquals(2, rows.get(0).getLine());
+        assertEquals("Next", rows.get(1).getName());
+        assertEquals(4, rows.get(1).getLine());
+        assertTrue(rows.get(2).isMalformed());
+    }
+
+    @Test
+    void parseCsv_throws_whenHeaderMissesAColumn() {
+        assertThrows(IllegalArgumentException.class, () -> parser.parseCsv(reader("name,abv\nA,5\n")));
+    }
+
+    @Test
+    void parseNdjson_readsOneObjectPerLine() {
+        List<BeerImportRow> rows = parse(parser.parseNdjson(reader(
+                "{\"name\":\"Lager\",\"abv\":4.8,\"style\":\"Pilsner\"}\n"
+                        + "{broken\n")));
+
+        assertEquals(2, rows.size());
+        assertFalse(rows.get(0).isMalformed());
+        assertEquals("Lager", rows.get(0).getName());
+        assertEquals(4.8, rows.get(0).getAbv());
+        assertTrue(rows.get(1).isMalformed());
+        assertEquals(2, rows.get(1).getLine());
+    }
+
+    private static BufferedReader reader(String text) {
+        return new BufferedReader(new StringReader(text));
+    }
+
+    private static List<BeerImportRow> parse(Iterator<BeerImportRow> iterator) {
+        List<BeerImportRow> rows = new ArrayList<>();
+        iterator.forEachRemaining(rows::add);
+        return rows;
+    }
+}
@@ -0,0 +1,132 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.models.BeerSummary;
+import com.company.web.springdemo.models.FilterOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BeerCatalogTests {
+
+    private BeerCatalog.Snapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = build(
+                beer(1, "Hazy IPA", 6.5),
+                beer(2, "Imperial Stout", 10.0),
+                beer(3, "Session IPA", 4.5),
+                beer(4, "Amber Lager", 5.0)
+        );
+    }
+
+    @Test
+    void patch_addsRenamesAndRemovesBeers() {
+        BeerCatalog.Snapshot patched = patch(snapshot, new int[]{1, 3, 5},
+                beer(1, "Zesty IPA", 6.5),
+                beer(5, "Brown Ale", 5.5));
+
+        assertEquals(4, patched.size());
+        assertArrayEquals(new int[]{1, 2, 4, 5}, ids(patched.find(options(null, FilterOptions.SORT_BY_ID, "asc"), null)));
+        assertArrayEquals(new int[]{4, 5, 2, 1}, ids(patched.find(options(null, FilterOptions.SORT_BY_NAME, "asc"), null)));
+        assertArrayEquals(new int[]{4, 5, 1, 2}, ids(patched.find(options(null, FilterOptions.SORT_BY_ABV, "asc"), null)));
+        assertArrayEquals(new int[]{1}, ids(patched.find(options("ipa", FilterOptions.SORT_BY_NAME, "asc"), null)));
+    }
+
+    @Test
+    void patch_leavesSnapshotUnchanged() {
+        patch(snapshot, new int[]{1, 2}, beer(1, "Zesty IPA", 6.5));
+
+        assertEquals(4, snapshot.size());
+        assertArrayEquals(new int[]{1, 3}, ids(snapshot.find(options("ipa", FilterOptions.SORT_BY_ID, "asc"), null)));
+    }
+
+    @Test
+    void patch_compactsOnceRemovedSlotsOutnumberLiveRows() {
+        BeerCatalog.Snapshot large = build(IntStream.rangeClosed(1, 3000)
+                .mapToObj(id -> beer(id, "Beer " + id, id % 100 / 10.0))
+                .toArray(BeerSummary[]::new));
+
+        BeerCatalog.Snapshot fewRemoved = patch(large, IntStream.rangeClosed(1, 100).toArray());
+        BeerCatalog.Snapshot mostRemoved = patch(fewRemoved, IntStream.rangeClosed(101, 2000).toArray());
+
+        assertEquals(2900, fewRemoved.size());
+        assertEquals(3000, fewRemoved.slots());
+        assertEquals(1000, mostRemoved.size());
+        assertEquals(1000, mostRemoved.slots());
+        assertArrayEquals(IntStream.rangeClosed(2001, 3000).toArray(),
+                ids(mostRemoved.find(options(null, FilterOptions.SORT_BY_ID, "asc"), null)));
+    }
+
+    @Test
+    void find_reversesIdTieBreaks_whenDescending() {
+        BeerCatalog.Snapshot ties = build(
+                beer(3, "Pils", 5.0),
+                beer(1, "Helles", 5.0),
+                beer(2, "Bock", 6.5),
+                beer(4, "Kolsch", 5.0)
+        );
+
+        assertArrayEquals(new int[]{1, 3, 4, 2}, ids(ties.find(options(null, FilterOptions.SORT_BY_ABV, "asc"), null)));
+        assertArrayEquals(new int[]{2, 4, 3, 1}, ids(ties.find(options(null, FilterOptions.SORT_BY_ABV, "desc"), null)));
+    }
+
+    @Test
+    void find_includesBeersOnTheAbvBounds() {
+        for (String sortBy : new String[]{FilterOptions.SORT_BY_ID, FilterOptions.SORT_BY_NAME, FilterOptions.SORT_BY_ABV}) {
+            assertEquals(Set.of(1, 3, 4), idSet(snapshot.find(new FilterOptions(null, 4.5, 6.5, null, sortBy, "asc"), null)));
+            assertEquals(Set.of(4), idSet(snapshot.find(new FilterOptions(null, 5.0, 5.0, null, sortBy, "desc"), null)));
+            assertEquals(Set.of(), idSet(snapshot.find(new FilterOptions(null, 6.6, 9.9, null, sortBy, "asc"), null)));
+        }
+    }
+
+    @Test
+    void find_matchesAndSortsNamesIgnoringCaseAndAccents() {
+        BeerCatalog.Snapshot accented = patch(snapshot, new int[]{5, 6},
+                beer(5, "Caf\u00e9 Stout", 7.0),
+                beer(6, "cabin Ale", 4.0));
+
+        assertArrayEquals(new int[]{4, 6, 5, 1, 2, 3},
+                ids(accented.find(options(null, FilterOptions.SORT_BY_NAME, "asc"), null)));
+        assertArrayEquals(new int[]{5}, ids(accented.find(options("CAFE", FilterOptions.SORT_BY_NAME, "asc"), null)));
+    }
+
+    @Test
+    void find_checksIndexCandidatesAgainstTheSnapshot() {
+        FilterOptions filterOptions = options("ipa", FilterOptions.SORT_BY_NAME, "desc");
+
+        assertArrayEquals(new int[]{3, 1}, ids(snapshot.find(filterOptions, null)));
+        assertArrayEquals(new int[]{3, 1}, ids(snapshot.find(filterOptions, new int[]{1, 2, 3, 99})));
+    }
+
+    private static BeerSummary beer(int id, String name, double abv) {
+        return new BeerSummary(id, name, abv, 1, "Ale", null, null);
+    }
+
+    private static BeerCatalog.Snapshot build(BeerSummary... rows) {
+        return BeerCatalog.Snapshot.build(rows, new long[rows.length], new long[rows.length], 1);
+    }
+
+    private static BeerCatalog.Snapshot patch(BeerCatalog.Snapshot snapshot, int[] ids, BeerSummary... changed) {
+        return snapshot.patch(ids, changed, new long[changed.length], new long[changed.length], 2);
+    }
+
+    private static FilterOptions options(String name, String sortBy, String sortOrder) {
+        return new FilterOptions(name, null, null, null, sortBy, sortOrder);
+    }
+
+    private static int[] ids(List<BeerSummary> beers) {
+        return beers.stream().mapToInt(BeerSummary::getId).toArray();
+    }
+
+    private static Set<Integer> idSet(List<BeerSummary> beers) {
+        return beers.stream().map(BeerSummary::getId).collect(Collectors.toSet());
+    }
+}
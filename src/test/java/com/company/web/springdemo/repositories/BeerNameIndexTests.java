@@ -0,0 +1,93 @@
+package com.company.web.springdemo.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BeerNameIndexTests {
+
+    private BeerNameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BeerNameIndex(Long.MAX_VALUE);
+        index.build(List.of(
+                Map.entry(1, "Hazy IPA"),
+                Map.entry(2, "Imperial Stout"),
+                Map.entry(3, "Session IPA"),
+                Map.entry(4, "Abcab")
+        ).iterator());
+    }
+
+    @Test
+    void search_findsSubstringsCaseInsensitively() {
+        assertArrayEquals(new int[]{1, 3}, index.search("ipa"));
+        assertArrayEquals(new int[]{2}, index.search("PERIAL st"));
+    }
+
+    @Test
+    void search_returnsEmpty_whenNoNameMatches() {
+        assertArrayEquals(new int[0], index.search("lager"));
+    }
+
+    @Test
+    void search_verifiesCandidates_whenGramsMatchOutOfOrder() {
+        assertArrayEquals(new int[0], index.search("bcabc"));
+    }
+
+    @Test
+    void search_returnsNull_forQueriesShorterThanAGram() {
+        assertNull(index.search("ip"));
+    }
+
+    @Test
+    void put_replacesPreviousName() {
+        index.put(1, "Hazy Pale Ale");
+
+        assertArrayEquals(new int[]{3}, index.search("ipa"));
+        assertArrayEquals(new int[]{1}, index.search("pale"));
+    }
+
+    @Test
+    void remove_dropsBeerFromResults() {
+        index.remove(3);
+
+        assertArrayEquals(new int[]{1}, index.search("ipa"));
+    }
+
+    @Test
+    void build_replaysWritesMadeWhileReading() {
+        BeerNameIndex rebuilt = new BeerNameIndex(Long.MAX_VALUE);
+        rebuilt.startBuild();
+        rebuilt.put(5, "Amber Lager");
+        rebuilt.remove(1);
+        rebuilt.build(List.of(Map.entry(1, "Hazy IPA"), Map.entry(3, "Session IPA")).iterator());
+
+        assertArrayEquals(new int[]{5}, rebuilt.search("lager"));
+        assertArrayEquals(new int[]{3}, rebuilt.search("ipa"));
+    }
+
+    @Test
+    void search_foldsAccents_andLeavesOtherNonAsciiQueriesToTheDatabase() {
+        index.put(5, "Caf\u00e9 Cr\u00e8me Stout");
+
+        assertArrayEquals(new int[]{5}, index.search("cafe creme"));
+        assertArrayEquals(new int[]{5}, index.search("CAF\u00c9"));
+        assertNull(index.search("stra\u00dfe"));
+    }
+
+    @Test
+    void build_disablesIndex_whenOverBudget() {
+        BeerNameIndex small = new BeerNameIndex(100);
+        small.build(List.of(Map.entry(1, "Hazy IPA"), Map.entry(2, "Imperial Stout")).iterator());
+
+        assertFalse(small.isEnabled());
+        assertNull(small.search("ipa"));
+    }
+}
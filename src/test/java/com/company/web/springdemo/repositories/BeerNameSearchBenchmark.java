@@ -0,0 +1,66 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.Benchmarks;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Compares the in-memory name index with the {@code like '%x%'} query of the database paths.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class BeerNameSearchBenchmark {
+
+    private static final String[] QUERIES = {"ipa", "stout", "imperial", "zzz"};
+
+    @Autowired
+    private BeerCatalog catalog;
+
+    @Autowired
+    private BeerNameIndex nameIndex;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void substringSearch() throws SQLException {
+        catalog.rebuild();
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "select beer_id from beers where lower(name) like ?")) {
+            for (String query : QUERIES) {
+                Benchmarks.measure("index '" + query + "'", () -> {
+                    int[] ids = nameIndex.search(query);
+                    return ids == null ? -1 : ids.length;
+                });
+                Benchmarks.measure("like  '" + query + "'", () -> like(statement, query));
+            }
+        }
+        System.out.printf("index size: ~%,d bytes%n", nameIndex.getEstimatedBytes());
+    }
+
+    private static int like(PreparedStatement statement, String query) {
+        try {
+            statement.setString(1, "%" + query + "%");
+            int rows = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows++;
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.Benchmarks;
+import com.company.web.springdemo.models.FilterOptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Compares the Hibernate and raw JDBC read paths on the filtered beer list.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "beers.repository.mode=jdbc")
+class BeerReadPathBenchmark {
+
+    @Autowired
+    private BeerRepositoryImpl hibernateRepository;
+
+    @Autowired
+    private BeerJdbcRepositoryImpl jdbcRepository;
+
+    @Test
+    void filteredListPage() {
+        FilterOptions filterOptions = new FilterOptions(null, 3.0, 12.0, null, "name", "asc");
+
+        Benchmarks.measure("hibernate list page", () -> hibernateRepository.get(filterOptions, null, 50).size());
+        Benchmarks.measure("jdbc      list page", () -> jdbcRepository.get(filterOptions, null, 50).size());
+    }
+
+    @Test
+    void fullList() {
+        Benchmarks.measure("hibernate full list", () -> hibernateRepository.get(null, null, null, null, "abv", "desc").size());
+        Benchmarks.measure("jdbc      full list", () -> jdbcRepository.get(null, null, null, null, "abv", "desc").size());
+    }
+}
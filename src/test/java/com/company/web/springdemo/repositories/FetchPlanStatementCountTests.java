@@ -0,0 +1,111 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.FilterOptions;
+import com.company.web.springdemo.models.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Checks that every read path issues a bounded number of SQL statements,
+ * independent of how many rows, creators or wishlist entries are involved.
+ */
+@SpringBootTest
+class FetchPlanStatementCountTests {
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = sessionFactory.getStatistics();
+        statistics.setStatisticsEnabled(true);
+        resetCounters();
+    }
+
+    @Test
+    void beerListing_issuesSingleStatement() {
+        List<Beer> beers = beerRepository.get(new FilterOptions(null, null, null, null, "name", "asc"), null, 100);
+
+        beers.forEach(beer -> {
+            beer.getStyle().getName();
+            if (beer.getCreatedBy() != null) {
+                beer.getCreatedBy().getUsername();
+            }
+        });
+
+        assertStatementsAtMost(1);
+    }
+
+    @Test
+    void beerDetail_issuesSingleStatement() {
+        int id = anyBeer().getId();
+        resetCounters();
+
+        Beer beer = beerRepository.get(id);
+        beer.getStyle().getName();
+
+        assertStatementsAtMost(1);
+    }
+
+    @Test
+    void userLookup_doesNotLoadWishlist() {
+        User anyUser = anyUser();
+        resetCounters();
+
+        userRepository.getByUsername(anyUser.getUsername());
+        userRepository.get(anyUser.getId());
+
+        assertStatementsAtMost(2);
+    }
+
+    @Test
+    void wishlist_issuesAtMostTwoStatements() {
+        int userId = anyUser().getId();
+        resetCounters();
+
+        userRepository.getWishList(userId, 0, 50).forEach(beer -> beer.getStyle().getName());
+
+        assertStatementsAtMost(2);
+    }
+
+    private Beer anyBeer() {
+        List<Beer> beers = beerRepository.get(new FilterOptions(null, null, null, null, "id", "asc"), null, 1);
+        assumeFalse(beers.isEmpty(), "No beers in the database");
+        return beers.get(0);
+    }
+
+    private User anyUser() {
+        List<User> users = userRepository.get();
+        assumeFalse(users.isEmpty(), "No users in the database");
+        return users.get(0);
+    }
+
+    private void resetCounters() {
+        sessionFactory.getCache().evictAllRegions();
+        statistics.clear();
+    }
+
+    private void assertStatementsAtMost(long expected) {
+        long actual = statistics.getPrepareStatementCount();
+        assertTrue(actual <= expected,
+                String.format("Expected at most %d statements but %d were prepared.", expected, actual));
+    }
+}